@@ -0,0 +1,84 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.dto.AvailableSlot;
+import com.smartclinic.dto.DoctorAvailability;
+import com.smartclinic.service.DoctorSearchIndex;
+import com.smartclinic.service.DoctorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slot availability for one doctor, the earliest free slot across a specialty and
+ * the first page of discovery results. Every doctor is fully booked on the first day
+ * except the last one, so the specialty searches have to look at all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailabilityBenchmark {
+    
+    private static final LocalDate DAY = LocalDate.of(2031, 3, 3);
+    
+    @Param({"100", "2000"})
+    private int doctorCount;
+    
+    private ConfigurableApplicationContext context;
+    
+    private DoctorService doctorService;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("availability" + doctorCount);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        BenchmarkDatabase.seedDoctors(jdbc, doctorCount, "Cardiology");
+        BenchmarkDatabase.seedPatients(jdbc, 1);
+        for (long doctorId = 1; doctorId < doctorCount; doctorId++) {
+            BenchmarkDatabase.seedAppointments(jdbc, doctorId, 1, 8, DAY.atTime(9, 0), 60);
+        }
+        // Seeded rows bypass the service, so the doctor index is rebuilt by hand
+        context.getBean(DoctorSearchIndex.class).rebuild();
+        doctorService = context.getBean(DoctorService.class);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<LocalTime> getAvailableTimeSlots() {
+        return doctorService.getAvailableTimeSlots(1L, DAY);
+    }
+    
+    @Benchmark
+    public Optional<AvailableSlot> findFirstAvailableSlot() {
+        return doctorService.findFirstAvailableSlot("Cardiology", DAY, 7);
+    }
+    
+    @Benchmark
+    public List<DoctorAvailability> discover() {
+        return doctorService.discover("Cardiology", null, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, DAY, 7, 0, 20);
+    }
+}
@@ -0,0 +1,147 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.SmartClinicApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boots the application against an in-memory H2 database (MySQL mode) and seeds it in bulk.
+ * Seeded rows get consecutive explicit ids, so the n-th seeded doctor or patient has id n;
+ * the id sequences are moved past them after every seed call.
+ */
+final class BenchmarkDatabase {
+    
+    private static final int BATCH_SIZE = 5000;
+    
+    private BenchmarkDatabase() {
+    }
+    
+    static ConfigurableApplicationContext start(String name, String... extraProperties) {
+        // Passed as command-line arguments so they override application.properties
+        List<String> properties = new ArrayList<>();
+        properties.add("--server.port=0");
+        properties.add("--management.server.port=0");
+        properties.add("--spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.add("--spring.datasource.driver-class-name=org.h2.Driver");
+        properties.add("--spring.datasource.username=sa");
+        properties.add("--spring.datasource.password=");
+        properties.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        properties.add("--spring.jpa.hibernate.ddl-auto=create");
+        properties.add("--spring.jpa.show-sql=false");
+        properties.add("--spring.jpa.properties.hibernate.format_sql=false");
+        properties.add("--jwt.secret=benchmarkSecretKey0123456789012345678901234567890123456789012345678901234567890");
+        properties.add("--clinic.booking.persist-queue-capacity=1000000");
+        properties.add("--logging.level.root=WARN");
+        for (String property : extraProperties) {
+            properties.add("--" + property);
+        }
+        return new SpringApplicationBuilder(SmartClinicApplication.class)
+                .logStartupInfo(false)
+                .run(properties.toArray(new String[0]));
+    }
+    
+    static void seedDoctors(JdbcTemplate jdbc, int count, String specialty) {
+        long firstId = nextId(jdbc, "doctors");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            rows.add(new Object[] {firstId + i - 1, "First" + i, "Last" + i, "doctor" + i + "@bench.test", "password", specialty, "555-" + i,
+                    Time.valueOf(LocalTime.of(9, 0)), Time.valueOf(LocalTime.of(17, 0))});
+            if (rows.size() == BATCH_SIZE) {
+                insertDoctors(jdbc, rows);
+            }
+        }
+        insertDoctors(jdbc, rows);
+        restartSequence(jdbc, "doctor_seq", "doctors");
+    }
+    
+    static void seedPatients(JdbcTemplate jdbc, int count) {
+        long firstId = nextId(jdbc, "patients");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            rows.add(new Object[] {firstId + i - 1, "Patient" + i, "Bench", "patient" + i + "@bench.test", "password", "555-" + i,
+                    Date.valueOf(LocalDate.of(1980, 1, 1)), "Address " + i});
+            if (rows.size() == BATCH_SIZE) {
+                insertPatients(jdbc, rows);
+            }
+        }
+        insertPatients(jdbc, rows);
+        restartSequence(jdbc, "patient_seq", "patients");
+    }
+    
+    /**
+     * Seeds one appointment per interval for a doctor, starting at the given time
+     */
+    static void seedAppointments(JdbcTemplate jdbc, long doctorId, long patientId, int count, LocalDateTime start, int intervalMinutes) {
+        long firstId = nextId(jdbc, "appointments");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] {firstId + i, Timestamp.valueOf(start.plusMinutes((long) i * intervalMinutes)), "SCHEDULED", null, doctorId, patientId});
+            if (rows.size() == BATCH_SIZE) {
+                insertAppointments(jdbc, rows);
+            }
+        }
+        insertAppointments(jdbc, rows);
+        restartSequence(jdbc, "appointment_seq", "appointments");
+    }
+    
+    /**
+     * Seeds a number of appointments per doctor per day, each with a random patient;
+     * doctors 1..doctorCount and patients 1..patientCount must exist
+     */
+    static void seedRandomAppointments(JdbcTemplate jdbc, int doctorCount, int patientCount, LocalDate firstDay, int days,
+                                       int perDay, long seed) {
+        Random random = new Random(seed);
+        long nextId = nextId(jdbc, "appointments");
+        List<Object[]> rows = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            LocalDateTime dayStart = firstDay.plusDays(day).atTime(9, 0);
+            for (long doctorId = 1; doctorId <= doctorCount; doctorId++) {
+                for (int i = 0; i < perDay; i++) {
+                    rows.add(new Object[] {nextId++, Timestamp.valueOf(dayStart.plusMinutes(i * 30L)), "COMPLETED", null, doctorId,
+                            (long) random.nextInt(patientCount) + 1});
+                    if (rows.size() == BATCH_SIZE) {
+                        insertAppointments(jdbc, rows);
+                    }
+                }
+            }
+        }
+        insertAppointments(jdbc, rows);
+        restartSequence(jdbc, "appointment_seq", "appointments");
+    }
+    
+    private static long nextId(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+    }
+    
+    private static void restartSequence(JdbcTemplate jdbc, String sequence, String table) {
+        jdbc.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + nextId(jdbc, table));
+    }
+    
+    private static void insertDoctors(JdbcTemplate jdbc, List<Object[]> rows) {
+        jdbc.batchUpdate("INSERT INTO doctors (id, first_name, last_name, email, password, specialty, phone_number, "
+                + "available_start_time, available_end_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+    
+    private static void insertPatients(JdbcTemplate jdbc, List<Object[]> rows) {
+        jdbc.batchUpdate("INSERT INTO patients (id, first_name, last_name, email, password, phone_number, date_of_birth, address) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+    
+    private static void insertAppointments(JdbcTemplate jdbc, List<Object[]> rows) {
+        jdbc.batchUpdate("INSERT INTO appointments (id, appointment_time, status, notes, doctor_id, patient_id) VALUES (?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+}
@@ -0,0 +1,82 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.controller.AppointmentController;
+import com.smartclinic.security.ClinicPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Booking latency through AppointmentController.bookAppointment as the number of doctors grows.
+ * Every invocation books a distinct free slot, spread round-robin over all doctors. Only the
+ * request thread's share is measured; the returned future completes once the persist executor
+ * has written the appointment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+    
+    private static final LocalDateTime FIRST_SLOT = LocalDateTime.of(2031, 1, 1, 0, 0);
+    
+    // An appointment takes a whole slot, so consecutive bookings of a doctor are a slot apart
+    private static final long SLOT_MINUTES = 60;
+    
+    @Param({"5", "500", "50000"})
+    private int doctorCount;
+    
+    private ConfigurableApplicationContext context;
+    
+    private AppointmentController appointmentController;
+    
+    private ClinicPrincipal patient;
+    
+    private final AtomicLong sequence = new AtomicLong();
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("booking" + doctorCount);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        BenchmarkDatabase.seedDoctors(jdbc, doctorCount, "Cardiology");
+        BenchmarkDatabase.seedPatients(jdbc, 1);
+        appointmentController = context.getBean(AppointmentController.class);
+        patient = new ClinicPrincipal("patient1@bench.test", false, null, 1L);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> bookAppointment() {
+        long n = sequence.getAndIncrement();
+        Map<String, Object> request = new HashMap<>();
+        request.put("doctorId", 1 + n % doctorCount);
+        request.put("appointmentTime", FIRST_SLOT.plusMinutes(n / doctorCount * SLOT_MINUTES).toString());
+        return appointmentController.bookAppointment(request, patient);
+    }
+}
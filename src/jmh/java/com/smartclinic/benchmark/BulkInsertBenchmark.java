@@ -0,0 +1,112 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.entity.Patient;
+import com.smartclinic.service.BulkPersister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to insert a large number of appointments through BulkPersister,
+ * with JDBC batching disabled (batch size 1) and enabled.
+ * Appointments are generated lazily and reference doctors and patients by id only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BulkInsertBenchmark {
+    
+    private static final LocalDateTime FIRST_APPOINTMENT = LocalDateTime.of(2031, 1, 1, 0, 0);
+    
+    private static final int DOCTORS = 100;
+    
+    @Param({"1000000"})
+    private int rows;
+    
+    @Param({"1", "500"})
+    private int jdbcBatchSize;
+    
+    private ConfigurableApplicationContext context;
+    
+    private JdbcTemplate jdbc;
+    
+    private BulkPersister bulkPersister;
+    
+    private final Doctor[] doctors = new Doctor[DOCTORS];
+    
+    private final Patient patient = new Patient();
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("bulk" + jdbcBatchSize, "spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize);
+        jdbc = context.getBean(JdbcTemplate.class);
+        BenchmarkDatabase.seedDoctors(jdbc, DOCTORS, "Cardiology");
+        BenchmarkDatabase.seedPatients(jdbc, 1);
+        bulkPersister = context.getBean(BulkPersister.class);
+        for (int i = 0; i < DOCTORS; i++) {
+            doctors[i] = new Doctor();
+            doctors[i].setId((long) i + 1);
+        }
+        patient.setId(1L);
+    }
+    
+    @Setup(Level.Iteration)
+    public void clearAppointments() {
+        jdbc.execute("TRUNCATE TABLE appointments");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public long persistAll() {
+        Iterable<Appointment> appointments = this::appointments;
+        return bulkPersister.persistAll(appointments);
+    }
+    
+    private Iterator<Appointment> appointments() {
+        return new Iterator<Appointment>() {
+            
+            private int next;
+            
+            @Override
+            public boolean hasNext() {
+                return next < rows;
+            }
+            
+            @Override
+            public Appointment next() {
+                if (next >= rows) {
+                    throw new NoSuchElementException();
+                }
+                Appointment appointment = new Appointment(FIRST_APPOINTMENT.plusMinutes(next / DOCTORS), doctors[next % DOCTORS], patient);
+                next++;
+                return appointment;
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.smartclinic.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The doctor-day view before and after the half-open range rewrite: the same rows selected
+ * with the appointment time wrapped in a date conversion, which no index can serve, and with
+ * a range on the raw column, which the (doctor_id, appointment_time) index serves directly.
+ * Rows are spread over 10 doctors with 16 appointments each per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DoctorDayBenchmark {
+    
+    private static final int DOCTORS = 10;
+    
+    private static final int PER_DAY = 16;
+    
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    
+    private static final String SELECT = "SELECT id, appointment_time, status, notes, patient_id FROM appointments ";
+    
+    // An in-memory database holds about 1M rows per GB; 10M rows need a larger heap (-jvmArgsAppend)
+    @Param({"10000000"})
+    private int rows;
+    
+    private ConfigurableApplicationContext context;
+    
+    private JdbcTemplate jdbc;
+    
+    private int days;
+    
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("doctorday" + rows);
+        jdbc = context.getBean(JdbcTemplate.class);
+        days = Math.max(1, rows / (DOCTORS * PER_DAY));
+        BenchmarkDatabase.seedDoctors(jdbc, DOCTORS, "Cardiology");
+        BenchmarkDatabase.seedPatients(jdbc, 1000);
+        BenchmarkDatabase.seedRandomAppointments(jdbc, DOCTORS, 1000, FIRST_DAY, days, PER_DAY, 42);
+        jdbc.execute("ANALYZE");
+    }
+    
+    // A different day on every call: H2 hands back the previous result for a repeated query on an unchanged table
+    private LocalDate nextDay() {
+        next = (next + 7919) % days;
+        return FIRST_DAY.plusDays(next);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    // Before: what DATE(a.appointmentTime) = :date compiled to
+    @Benchmark
+    public List<Map<String, Object>> dateFunction() {
+        LocalDate day = nextDay();
+        return jdbc.queryForList(SELECT + "WHERE doctor_id = ? AND CAST(appointment_time AS DATE) = ?",
+                5L, Date.valueOf(day));
+    }
+    
+    // After: findByDoctorAndDay's half-open range
+    @Benchmark
+    public List<Map<String, Object>> halfOpenRange() {
+        LocalDate day = nextDay();
+        return jdbc.queryForList(SELECT + "WHERE doctor_id = ? AND appointment_time >= ? AND appointment_time < ?",
+                5L, Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    }
+}
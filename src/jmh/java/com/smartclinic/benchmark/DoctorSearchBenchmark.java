@@ -0,0 +1,73 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.service.DoctorSearchIndex;
+import com.smartclinic.service.DoctorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typeahead search over a large doctor directory: the index lookup alone and the
+ * full service call that also returns the matching doctors.
+ * "Last4242" is selective, "rst99" matches inside words and "Car" matches every specialty.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DoctorSearchBenchmark {
+    
+    @Param({"100000"})
+    private int doctorCount;
+    
+    @Param({"Last4242", "rst99", "Car"})
+    private String query;
+    
+    private ConfigurableApplicationContext context;
+    
+    private DoctorSearchIndex doctorSearchIndex;
+    
+    private DoctorService doctorService;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("search" + doctorCount);
+        BenchmarkDatabase.seedDoctors(context.getBean(JdbcTemplate.class), doctorCount, "Cardiology");
+        doctorSearchIndex = context.getBean(DoctorSearchIndex.class);
+        doctorSearchIndex.rebuild();
+        doctorService = context.getBean(DoctorService.class);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<Long> searchIndex() {
+        return doctorSearchIndex.search(query, null);
+    }
+    
+    @Benchmark
+    public List<Doctor> searchDoctors() {
+        return doctorService.searchDoctors(query, null);
+    }
+}
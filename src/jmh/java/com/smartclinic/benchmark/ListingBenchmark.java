@@ -0,0 +1,92 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.dto.AppointmentView;
+import com.smartclinic.dto.KeysetPage;
+import com.smartclinic.dto.KeysetPageRequest;
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.repository.AppointmentRepository;
+import com.smartclinic.repository.DoctorRepository;
+import com.smartclinic.service.AppointmentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository listing queries over a doctor with a long appointment history:
+ * the full findByDoctor list, one day, and one keyset page of projections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+    
+    private static final LocalDateTime FIRST_APPOINTMENT = LocalDateTime.of(2020, 1, 1, 9, 0);
+    
+    @Param({"20000"})
+    private int historySize;
+    
+    private ConfigurableApplicationContext context;
+    
+    private AppointmentRepository appointmentRepository;
+    
+    private AppointmentService appointmentService;
+    
+    private Doctor doctor;
+    
+    private KeysetPageRequest firstPage;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("listing" + historySize);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        BenchmarkDatabase.seedDoctors(jdbc, 2, "Cardiology");
+        BenchmarkDatabase.seedPatients(jdbc, 1);
+        BenchmarkDatabase.seedAppointments(jdbc, 1, 1, historySize, FIRST_APPOINTMENT, 60);
+        BenchmarkDatabase.seedAppointments(jdbc, 2, 1, historySize, FIRST_APPOINTMENT, 60);
+        appointmentRepository = context.getBean(AppointmentRepository.class);
+        appointmentService = context.getBean(AppointmentService.class);
+        doctor = context.getBean(DoctorRepository.class).findById(1L).get();
+        firstPage = new KeysetPageRequest(null, null, true, 20, null);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<Appointment> findByDoctor() {
+        return appointmentRepository.findByDoctor(doctor);
+    }
+    
+    @Benchmark
+    public List<Appointment> findByDoctorAndDay() {
+        LocalDateTime day = FIRST_APPOINTMENT.plusDays(100).toLocalDate().atStartOfDay();
+        return appointmentRepository.findByDoctorAndDay(doctor, day, day.plusDays(1));
+    }
+    
+    @Benchmark
+    public KeysetPage<AppointmentView> keysetPage() {
+        return appointmentService.getAppointmentPageForDoctor(1L, firstPage);
+    }
+}
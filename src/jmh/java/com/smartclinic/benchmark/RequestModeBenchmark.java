@@ -0,0 +1,114 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.service.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the full HTTP stack with 10,000 concurrent clients, comparing request handling
+ * on Tomcat's platform worker pool with one virtual thread per request. Every request reads a
+ * page of a patient's appointments, one database query behind a pool of poolSize connections.
+ * Throughput mode gives requests per millisecond; sample mode gives p99 latency.
+ * Admission control is switched off: every client is the same patient, and the point is how
+ * each mode copes with the full load rather than how much of it gets turned away.
+ * The virtual mode needs JDK 21 or later and fails its setup on older JDKs.
+ * Run just this benchmark with: mvn -Pbenchmarks verify -Djmh.args="RequestModeBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xss256k", "-Dhttp.maxConnections=20000"})
+@Threads(10000)
+public class RequestModeBenchmark {
+    
+    @Param({"platform", "virtual"})
+    private String threadMode;
+    
+    @Param({"20"})
+    private int poolSize;
+    
+    private ConfigurableApplicationContext context;
+    
+    private URL url;
+    
+    private String authorization;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("virtual".equals(threadMode) && supportsVirtualThreads() == false) {
+            throw new IllegalStateException("Virtual threads need JDK 21 or later; running " + System.getProperty("java.version"));
+        }
+        context = BenchmarkDatabase.start("requests" + threadMode,
+                "clinic.threads.mode=" + threadMode,
+                "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "server.tomcat.max-connections=20000",
+                "server.tomcat.accept-count=20000",
+                "clinic.admission.enabled=false");
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        BenchmarkDatabase.seedDoctors(jdbc, 1, "Cardiology");
+        BenchmarkDatabase.seedPatients(jdbc, 1);
+        BenchmarkDatabase.seedAppointments(jdbc, 1, 1, 200, LocalDateTime.of(2020, 1, 1, 9, 0), 60);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        url = new URL("http://localhost:" + port + "/api/appointments/patient/page?size=20");
+        authorization = "Bearer " + context.getBean(TokenService.class).generateToken("patient1@bench.test");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+    
+    @Benchmark
+    public int listAppointments() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Authorization", authorization);
+        int status = connection.getResponseCode();
+        if (status != 200) {
+            // Failed requests are fast; counting them would flatter the numbers
+            throw new IOException("HTTP " + status);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            while (in.read(buffer) != -1) {
+                // Drain the body so the connection goes back to the keep-alive cache
+            }
+        }
+        return status;
+    }
+    
+    private static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
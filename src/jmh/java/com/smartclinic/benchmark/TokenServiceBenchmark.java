@@ -0,0 +1,71 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.service.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenService.validateToken on a cache hit, a cache miss (full HS512 verify) and an expired token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServiceBenchmark {
+    
+    private static final String SECRET = "benchmarkSecretKey0123456789012345678901234567890123456789012345678901234567890";
+    
+    private TokenService cachingTokenService;
+    
+    private TokenService uncachedTokenService;
+    
+    private String validToken;
+    
+    private String expiredToken;
+    
+    @Setup
+    public void setUp() {
+        cachingTokenService = tokenService(86400000L, 100000);
+        uncachedTokenService = tokenService(86400000L, 0);
+        validToken = cachingTokenService.generateToken("patient1@bench.test");
+        expiredToken = tokenService(-60000L, 100000).generateToken("patient1@bench.test");
+        cachingTokenService.validateToken(validToken);
+    }
+    
+    @Benchmark
+    public String cacheHit() {
+        return cachingTokenService.validateToken(validToken);
+    }
+    
+    @Benchmark
+    public String cacheMiss() {
+        return uncachedTokenService.validateToken(validToken);
+    }
+    
+    @Benchmark
+    public String expiredToken() {
+        return cachingTokenService.validateToken(expiredToken);
+    }
+    
+    private static TokenService tokenService(long expiration, long cacheMaxSize) {
+        TokenService tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "secret", SECRET);
+        ReflectionTestUtils.setField(tokenService, "expiration", expiration);
+        ReflectionTestUtils.setField(tokenService, "cacheMaxSize", cacheMaxSize);
+        ReflectionTestUtils.invokeMethod(tokenService, "init");
+        return tokenService;
+    }
+}
@@ -0,0 +1,99 @@
+package com.smartclinic.benchmark;
+
+import com.smartclinic.dto.DoctorPatientCount;
+import com.smartclinic.service.UniquePatientAnalytics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Doctor with most patients" for a month and a year: the COUNT(DISTINCT patient_id) query of
+ * the stored procedures against rankings merged from per-day HyperLogLog sketches.
+ * Sketch accuracy is checked by HyperLogLogTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UniquePatientBenchmark {
+    
+    private static final int YEAR = 2030;
+    
+    private static final LocalDate YEAR_START = LocalDate.of(YEAR, 1, 1);
+    
+    private static final String EXACT_RANKING = "SELECT doctor_id, COUNT(DISTINCT patient_id) AS patient_count FROM appointments "
+            + "WHERE appointment_time >= ? AND appointment_time < ? GROUP BY doctor_id ORDER BY patient_count DESC LIMIT 1";
+    
+    @Param({"100", "400"})
+    private int doctorCount;
+    
+    @Param({"20000"})
+    private int patientCount;
+    
+    private ConfigurableApplicationContext context;
+    
+    private JdbcTemplate jdbc;
+    
+    private UniquePatientAnalytics analytics;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("uniquepatients" + doctorCount);
+        jdbc = context.getBean(JdbcTemplate.class);
+        // H2 would otherwise hand back the previous result of an identical query on unchanged tables
+        jdbc.execute("SET OPTIMIZE_REUSE_RESULTS 0");
+        BenchmarkDatabase.seedDoctors(jdbc, doctorCount, "Cardiology");
+        BenchmarkDatabase.seedPatients(jdbc, patientCount);
+        BenchmarkDatabase.seedRandomAppointments(jdbc, doctorCount, patientCount, YEAR_START, 365, 8, 42);
+        // Seeded rows bypass the service, so the sketches are rebuilt by hand
+        analytics = context.getBean(UniquePatientAnalytics.class);
+        analytics.rebuild();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<Map<String, Object>> exactMonth() {
+        return jdbc.queryForList(EXACT_RANKING, Timestamp.valueOf(YEAR_START.atStartOfDay()),
+                Timestamp.valueOf(YEAR_START.plusMonths(1).atStartOfDay()));
+    }
+    
+    @Benchmark
+    public List<Map<String, Object>> exactYear() {
+        return jdbc.queryForList(EXACT_RANKING, Timestamp.valueOf(YEAR_START.atStartOfDay()),
+                Timestamp.valueOf(YEAR_START.plusYears(1).atStartOfDay()));
+    }
+    
+    @Benchmark
+    public List<DoctorPatientCount> sketchMonth() {
+        return analytics.topDoctors(YEAR_START, YEAR_START.plusMonths(1), 1);
+    }
+    
+    @Benchmark
+    public List<DoctorPatientCount> sketchYear() {
+        return analytics.topDoctors(YEAR_START, YEAR_START.plusYears(1), 1);
+    }
+}
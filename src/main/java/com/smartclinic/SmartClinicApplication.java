@@ -2,8 +2,11 @@ package com.smartclinic;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// An R2DBC ConnectionFactory bean would replace the JDBC DataSource used by JPA;
+// the reactive read API builds its own pool in ReactiveReadConfig
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class SmartClinicApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,79 @@
+package com.smartclinic.cli;
+
+import com.smartclinic.dto.ImportReport;
+import com.smartclinic.service.ImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+/**
+ * Runs a bulk import from a file and exits, when started with {@code --clinic.import.file=...}.
+ * The type defaults from the file name and the format from its extension; see DEPLOYMENT.md
+ */
+@Component
+@ConditionalOnProperty("clinic.import.file")
+public class ImportCommand implements CommandLineRunner {
+    
+    private static final Logger log = LoggerFactory.getLogger(ImportCommand.class);
+    
+    @Autowired
+    private ImportService importService;
+    
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+    
+    @Value("${clinic.import.file}")
+    private String file;
+    
+    @Value("${clinic.import.type:}")
+    private String type;
+    
+    @Value("${clinic.import.format:}")
+    private String format;
+    
+    @Override
+    public void run(String... args) {
+        String importType = type.isEmpty() ? typeFromFileName() : type;
+        String importFormat = format.isEmpty() ? (file.endsWith(".csv") ? "csv" : "ndjson") : format;
+        
+        int exitCode;
+        if (ImportService.TYPES.contains(importType) == false || ImportService.FORMATS.contains(importFormat) == false) {
+            log.error("Unsupported import: {} as {}", importType, importFormat);
+            exitCode = 2;
+        } else {
+            try (InputStream in = new FileInputStream(file)) {
+                ImportReport report = importService.importRecords(importType, importFormat, in);
+                for (ImportReport.RowError error : report.getErrors()) {
+                    log.warn("Line {}: {}", error.getLine(), error.getMessage());
+                }
+                log.info("Import of {} finished: {} read, {} imported, {} rejected{}", file, report.getRowsRead(),
+                        report.getRowsImported(), report.getRowsRejected(), report.isErrorsTruncated() ? " (errors truncated)" : "");
+                exitCode = report.getRowsRejected() == 0 ? 0 : 1;
+            } catch (Exception e) {
+                log.error("Import of {} failed", file, e);
+                exitCode = 2;
+            }
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> status));
+    }
+    
+    private String typeFromFileName() {
+        String name = file.substring(file.lastIndexOf('/') + 1).toLowerCase();
+        for (String candidate : ImportService.TYPES) {
+            if (name.startsWith(candidate)) {
+                return candidate;
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,58 @@
+package com.smartclinic.config;
+
+import com.smartclinic.metrics.StatementCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class BookingConfig {
+    
+    @Value("${clinic.booking.persist-threads:2}")
+    private int persistThreads;
+    
+    @Value("${clinic.booking.persist-queue-capacity:10000}")
+    private int persistQueueCapacity;
+    
+    @Value("${clinic.waitlist.fill-threads:1}")
+    private int waitlistFillThreads;
+    
+    @Value("${clinic.waitlist.fill-queue-capacity:10000}")
+    private int waitlistFillQueueCapacity;
+    
+    /**
+     * Executor that writes reserved appointments to the database off the request thread
+     * @return Bounded executor; submissions fail fast once the queue is full
+     */
+    @Bean(name = "appointmentPersistExecutor")
+    public ThreadPoolTaskExecutor appointmentPersistExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(persistThreads);
+        executor.setMaxPoolSize(persistThreads);
+        executor.setQueueCapacity(persistQueueCapacity);
+        executor.setThreadNamePrefix("appointment-persist-");
+        // The booking request waits for the write, so its statements count towards the request
+        executor.setTaskDecorator(StatementCounter.taskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    /**
+     * Executor that books freed slots for waiting patients, so the cancellation that freed
+     * the slot does not wait for it
+     * @return Bounded executor; submissions fail fast once the queue is full
+     */
+    @Bean(name = "waitlistExecutor")
+    public ThreadPoolTaskExecutor waitlistExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(waitlistFillThreads);
+        executor.setMaxPoolSize(waitlistFillThreads);
+        executor.setQueueCapacity(waitlistFillQueueCapacity);
+        executor.setThreadNamePrefix("waitlist-fill-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
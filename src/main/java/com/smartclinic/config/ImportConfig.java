@@ -0,0 +1,31 @@
+package com.smartclinic.config;
+
+import com.smartclinic.metrics.StatementCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportConfig {
+    
+    @Value("${clinic.import.max-concurrent:2}")
+    private int maxConcurrentImports;
+    
+    /**
+     * Executor running the database writer of each bulk import
+     * @return Executor with one thread per concurrent import
+     */
+    @Bean(name = "importWriterExecutor")
+    public ThreadPoolTaskExecutor importWriterExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentImports);
+        executor.setMaxPoolSize(maxConcurrentImports);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("import-writer-");
+        executor.setTaskDecorator(StatementCounter.taskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,57 @@
+package com.smartclinic.config;
+
+import com.smartclinic.metrics.StatementCounter;
+import com.smartclinic.metrics.StatementMetricsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    
+    @Value("${clinic.metrics.statement-warn-threshold:25}")
+    private int statementWarnThreshold;
+    
+    /**
+     * Registers the statement counter with Hibernate
+     * @return Hibernate properties customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCounter());
+    }
+    
+    /**
+     * Statement metrics filter, ordered ahead of the security chain so that
+     * queries made while authenticating the caller are counted too
+     * @param meterRegistry Meter registry
+     * @return Filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<StatementMetricsFilter> statementMetricsFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<StatementMetricsFilter> registration =
+                new FilterRegistrationBean<>(new StatementMetricsFilter(meterRegistry, statementWarnThreshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+    
+    /**
+     * Runs Callable and WebAsyncTask handlers, such as exports, on a thread per task as before,
+     * counting their statements into the request's counter
+     * @param configurer Async support configurer
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mvc-async-");
+        executor.setTaskDecorator(StatementCounter.taskDecorator());
+        configurer.setTaskExecutor(executor);
+    }
+}
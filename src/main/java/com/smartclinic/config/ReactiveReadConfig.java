@@ -0,0 +1,218 @@
+package com.smartclinic.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.controller.ReactiveReadHandler;
+import com.smartclinic.repository.ReactiveReadRepository;
+import com.smartclinic.security.AdmissionControl;
+import com.smartclinic.security.PrincipalResolver;
+import com.smartclinic.security.ReactiveAdmissionFilter;
+import com.smartclinic.security.StreamTickets;
+import com.smartclinic.service.ScheduleUpdateHub;
+import com.smartclinic.service.TokenService;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.AutoTimer;
+import org.springframework.boot.actuate.metrics.web.reactive.server.MetricsWebFilter;
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTags;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * Reactive read API: doctor lists, day schedules and patient history served by non-blocking
+ * handlers on a reactor-netty server of their own, reading through R2DBC. Writes stay on the
+ * servlet API and JPA. The R2DBC pool is deliberately not a bean: a ConnectionFactory bean
+ * would make Spring Boot skip the JDBC DataSource that JPA runs on.
+ * Off unless clinic.reactive.enabled is set. Requests pass the same admission control as the
+ * servlet API and are timed as http.server.requests like the servlet endpoints.
+ */
+@Configuration
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = "clinic.reactive.enabled", havingValue = "true")
+public class ReactiveReadConfig {
+    
+    static final String SCHEDULE_UPDATES_PATH = "/api/appointments/doctor/updates";
+    
+    @Value("${clinic.reactive.port:8081}")
+    private int port;
+    
+    // Required: there is no reliable way to derive it from the JDBC URL, whose options differ
+    @Value("${clinic.reactive.r2dbc.url:}")
+    private String r2dbcUrl;
+    
+    @Value("${clinic.reactive.r2dbc.username:${spring.datasource.username}}")
+    private String r2dbcUsername;
+    
+    @Value("${clinic.reactive.r2dbc.password:${spring.datasource.password}}")
+    private String r2dbcPassword;
+    
+    @Value("${clinic.reactive.r2dbc.pool-size:10}")
+    private int poolSize;
+    
+    @Value("${clinic.schedule-updates.heartbeat-interval:25s}")
+    private Duration heartbeatInterval;
+    
+    private ConnectionPool connectionPool;
+    
+    /**
+     * R2DBC client over a small connection pool; open reads wait for a connection without holding a thread
+     * @return Database client
+     */
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        if (r2dbcUrl.isEmpty()) {
+            throw new IllegalStateException("clinic.reactive.enabled needs clinic.reactive.r2dbc.url, "
+                    + "pointing at the same database as spring.datasource.url");
+        }
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(r2dbcUrl).mutate()
+                .option(ConnectionFactoryOptions.USER, r2dbcUsername)
+                .option(ConnectionFactoryOptions.PASSWORD, r2dbcPassword)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(0)
+                .maxSize(poolSize)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+    
+    @PreDestroy
+    void closePool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+    
+    @Bean
+    public ReactiveReadHandler reactiveReadHandler(DatabaseClient reactiveDatabaseClient, ScheduleUpdateHub scheduleUpdateHub) {
+        return new ReactiveReadHandler(new ReactiveReadRepository(reactiveDatabaseClient), scheduleUpdateHub, heartbeatInterval);
+    }
+    
+    /**
+     * Routes of the reactive read API; paths mirror the servlet endpoints they parallel
+     * @param handler Reactive read handler
+     * @return Router function
+     */
+    @Bean
+    public RouterFunction<ServerResponse> reactiveReadRoutes(ReactiveReadHandler handler) {
+        return RouterFunctions.route()
+                .GET("/api/doctors", handler::doctors)
+                .GET("/api/appointments/patient", handler::patientAppointments)
+                .GET("/api/appointments/doctor/date/{date}", handler::doctorAppointmentsOnDate)
+                .GET(SCHEDULE_UPDATES_PATH, handler::doctorScheduleUpdates)
+                .build();
+    }
+    
+    /**
+     * Server for the reactive routes, encoding JSON with the application's ObjectMapper. Requests are
+     * timed first, so rejected ones are counted too, then authenticated and admitted
+     * @param reactiveReadRoutes Routes
+     * @param objectMapper Object mapper
+     * @param meterRegistry Meter registry
+     * @param admissionControl Admission control
+     * @param tokenService Token service
+     * @param principalResolver Principal resolver
+     * @param streamTickets Tickets for the schedule update stream
+     * @return Server, started and stopped with the application context
+     */
+    @Bean
+    public ReactiveReadServer reactiveReadServer(RouterFunction<ServerResponse> reactiveReadRoutes, ObjectMapper objectMapper,
+                                                 MeterRegistry meterRegistry, AdmissionControl admissionControl,
+                                                 TokenService tokenService, PrincipalResolver principalResolver,
+                                                 StreamTickets streamTickets) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .webFilter(new MetricsWebFilter(meterRegistry, (exchange, exception) -> Tags.of(
+                        WebFluxTags.method(exchange), routeTag(exchange), WebFluxTags.status(exchange),
+                        WebFluxTags.exception(exception), WebFluxTags.outcome(exchange, exception)),
+                        "http.server.requests", AutoTimer.ENABLED))
+                .webFilter(new ReactiveAdmissionFilter(admissionControl, tokenService, principalResolver, streamTickets,
+                        objectMapper, Collections.singleton(SCHEDULE_UPDATES_PATH)))
+                .build();
+        return new ReactiveReadServer(RouterFunctions.toHttpHandler(reactiveReadRoutes, strategies), port);
+    }
+    
+    // Router functions record the matched route under their own attribute, which WebFluxTags.uri does not read
+    private static Tag routeTag(ServerWebExchange exchange) {
+        PathPattern pattern = exchange.getAttribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? Tag.of("uri", pattern.getPatternString()) : WebFluxTags.uri(exchange);
+    }
+    
+    /**
+     * Runs the reactive routes on reactor-netty, whose few event-loop threads serve every open connection
+     */
+    public static class ReactiveReadServer implements SmartLifecycle {
+        
+        private static final Logger log = LoggerFactory.getLogger(ReactiveReadServer.class);
+        
+        private final HttpHandler httpHandler;
+        
+        private final int port;
+        
+        private volatile DisposableServer server;
+        
+        ReactiveReadServer(HttpHandler httpHandler, int port) {
+            this.httpHandler = httpHandler;
+            this.port = port;
+        }
+        
+        @Override
+        public void start() {
+            server = HttpServer.create()
+                    .port(port)
+                    .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                    .bindNow();
+            log.info("Reactive read API started on port {}", server.port());
+        }
+        
+        @Override
+        public void stop() {
+            if (server != null) {
+                server.disposeNow();
+                server = null;
+            }
+        }
+        
+        @Override
+        public boolean isRunning() {
+            return server != null;
+        }
+        
+        /**
+         * @return Bound port, or -1 if the server is not running
+         */
+        public int getPort() {
+            DisposableServer current = server;
+            return current == null ? -1 : current.port();
+        }
+    }
+}
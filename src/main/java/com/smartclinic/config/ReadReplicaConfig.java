@@ -0,0 +1,103 @@
+package com.smartclinic.config;
+
+import com.smartclinic.service.AppointmentService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read replica routing, enabled by setting clinic.datasource.replica.jdbc-url. The primary pool
+ * keeps the spring.datasource settings; the replica gets a pool of its own, and the DataSource
+ * that JPA and JDBC use picks one of the two per transaction.
+ */
+@Configuration
+@ConditionalOnProperty(name = "clinic.datasource.replica.jdbc-url")
+public class ReadReplicaConfig {
+    
+    @Value("${clinic.datasource.routing.max-lag:5s}")
+    private Duration maxLag;
+    
+    @Value("${clinic.datasource.routing.lag-check-interval:1s}")
+    private Duration lagCheckInterval;
+    
+    /**
+     * Primary pool, built from spring.datasource.* and tuned by spring.datasource.hikari.*
+     * @param properties Spring Boot data source properties
+     * @return Primary pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+    
+    /**
+     * Replica pool, configured by clinic.datasource.replica.* with Hikari's property names
+     * @return Replica pool
+     */
+    @Bean
+    @ConfigurationProperties("clinic.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+    
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, maxLag, lagCheckInterval);
+    }
+    
+    /**
+     * DataSource used by JPA and JDBC. The lazy proxy defers taking a connection until the first
+     * statement, when the transaction's read-only flag and name are known.
+     * @param primaryDataSource Primary pool
+     * @param replicaDataSource Replica pool
+     * @param replicaLagMonitor Replica health
+     * @return Routing data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primaryDataSource);
+        targets.put(ReadWriteRoutingDataSource.REPLICA, replicaDataSource);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaLagMonitor,
+                AppointmentService.class.getPackage().getName());
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+    
+    /**
+     * Releases the JDBC connection at the end of each transaction. With open-in-view a session
+     * otherwise holds its first connection until the request ends, and every later transaction
+     * of the request would reuse it whichever pool it came from.
+     * @return Hibernate properties customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionPerTransactionCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
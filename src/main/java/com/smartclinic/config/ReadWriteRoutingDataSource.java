@@ -0,0 +1,42 @@
+package com.smartclinic.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends the read-only transactions of the service layer to the replica while ReplicaLagMonitor
+ * reports it usable, and everything else to the primary. Spring Data repositories open
+ * read-only transactions of their own when called outside a service transaction; those are not
+ * named after a service method, so lookups that must see a write just made still read the primary.
+ * Reads that fill the query cache are not made read-only, so a lagging replica cannot cache stale results.
+ * The routing key is only meaningful once a transaction has begun, so this must sit behind a
+ * LazyConnectionDataSourceProxy.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    
+    static final String PRIMARY = "primary";
+    
+    static final String REPLICA = "replica";
+    
+    private final ReplicaLagMonitor lagMonitor;
+    
+    private final String routedPackage;
+    
+    ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor, String routedPackage) {
+        this.lagMonitor = lagMonitor;
+        this.routedPackage = routedPackage + ".";
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() == false) {
+            return PRIMARY;
+        }
+        // Transaction names are the declaring class and method, e.g. com.smartclinic.service.DoctorService.getAllDoctors
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (name == null || name.startsWith(routedPackage) == false) {
+            return PRIMARY;
+        }
+        return lagMonitor.routeRead() ? REPLICA : PRIMARY;
+    }
+}
@@ -0,0 +1,183 @@
+package com.smartclinic.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether reads may go to the replica. Every check interval it reads the heartbeat row
+ * on the replica, then writes a fresh one on the primary; the replica is usable while the beat
+ * it holds is no older than the allowed lag. Lag is measured to the check interval, and a
+ * failed check on either side sends reads back to the primary until a later check succeeds.
+ * With the lag check disabled the replica only has to answer a trivial query.
+ */
+public class ReplicaLagMonitor implements SmartLifecycle, MeterBinder {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    
+    private static final int HEARTBEAT_ID = 1;
+    
+    private final JdbcTemplate primary;
+    
+    private final JdbcTemplate replica;
+    
+    private final Duration maxLag;
+    
+    private final Duration checkInterval;
+    
+    private final AtomicLong replicaReads = new AtomicLong();
+    
+    private final AtomicLong primaryFallbacks = new AtomicLong();
+    
+    private volatile boolean replicaUsable;
+    
+    // Milliseconds, or -1 until the first successful lag check
+    private volatile long lagMillis = -1;
+    
+    // Last beat written to the primary, or 0 before the first one
+    private long lastBeat;
+    
+    private volatile ScheduledExecutorService scheduler;
+    
+    ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, Duration checkInterval) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout((int) Math.max(1, checkInterval.getSeconds()));
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+    }
+    
+    /**
+     * Decides where a routed read goes and counts the decision
+     * @return true to read from the replica, false to fall back to the primary
+     */
+    public boolean routeRead() {
+        if (replicaUsable) {
+            replicaReads.incrementAndGet();
+            return true;
+        }
+        primaryFallbacks.incrementAndGet();
+        return false;
+    }
+    
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("clinic.datasource.replica.lag", this, monitor -> monitor.lagMillis)
+                .baseUnit("milliseconds")
+                .description("Replication lag seen by the last heartbeat check, -1 if unknown")
+                .register(registry);
+        Gauge.builder("clinic.datasource.replica.usable", this, monitor -> monitor.replicaUsable ? 1 : 0)
+                .description("Whether read-only service transactions currently go to the replica")
+                .register(registry);
+        FunctionCounter.builder("clinic.datasource.reads", replicaReads, AtomicLong::get)
+                .tag("target", "replica")
+                .register(registry);
+        FunctionCounter.builder("clinic.datasource.reads", primaryFallbacks, AtomicLong::get)
+                .tag("target", "primary-fallback")
+                .register(registry);
+    }
+    
+    // Started with the application context, once Hibernate has created the heartbeat table
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public void stop() {
+        ScheduledExecutorService current = scheduler;
+        if (current != null) {
+            current.shutdownNow();
+            scheduler = null;
+        }
+        replicaUsable = false;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+    
+    void check() {
+        if (maxLag.isZero() || maxLag.isNegative()) {
+            checkReachable();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            Long seen = replica.query("SELECT beat_millis FROM replication_heartbeat WHERE id = ?",
+                    rs -> rs.next() ? rs.getLong(1) : null, HEARTBEAT_ID);
+            if (seen == null) {
+                markUnusable("no heartbeat has reached the replica yet");
+            } else {
+                // Caught up with the last beat written, or behind by at least the age of the beat it holds
+                long lag = seen >= lastBeat ? 0 : now - seen;
+                lagMillis = lag;
+                if (lag > maxLag.toMillis()) {
+                    markUnusable("replica is " + lag + " ms behind");
+                } else {
+                    markUsable();
+                }
+            }
+        } catch (RuntimeException e) {
+            lagMillis = -1;
+            markUnusable("heartbeat read failed: " + e.getMessage());
+        }
+        try {
+            if (primary.update("UPDATE replication_heartbeat SET beat_millis = ? WHERE id = ?", now, HEARTBEAT_ID) == 0) {
+                primary.update("INSERT INTO replication_heartbeat (id, beat_millis) VALUES (?, ?)", HEARTBEAT_ID, now);
+            }
+            lastBeat = now;
+        } catch (RuntimeException e) {
+            // Without fresh beats lag cannot be told apart from a quiet primary
+            markUnusable("heartbeat write failed: " + e.getMessage());
+        }
+    }
+    
+    private void checkReachable() {
+        try {
+            replica.queryForObject("SELECT 1", Integer.class);
+            markUsable();
+        } catch (RuntimeException e) {
+            markUnusable("replica unreachable: " + e.getMessage());
+        }
+    }
+    
+    private void markUsable() {
+        if (replicaUsable == false) {
+            log.info("Routing read-only service transactions to the replica");
+        }
+        replicaUsable = true;
+    }
+    
+    // Logged once per outage rather than on every check
+    private void markUnusable(String reason) {
+        if (replicaUsable) {
+            log.warn("Routing reads to the primary: {}", reason);
+        } else {
+            log.debug("Replica still unusable: {}", reason);
+        }
+        replicaUsable = false;
+    }
+}
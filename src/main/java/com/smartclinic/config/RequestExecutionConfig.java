@@ -0,0 +1,50 @@
+package com.smartclinic.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Selects the threads that handle requests, with clinic.threads.mode:
+ * "platform" keeps Tomcat's worker pool (server.tomcat.threads.max bounds concurrency);
+ * "virtual" runs every request, and so its repository calls, on its own virtual thread,
+ * leaving the connection pool as the limit on concurrent database work.
+ */
+@Configuration
+public class RequestExecutionConfig {
+    
+    private static final Logger log = LoggerFactory.getLogger(RequestExecutionConfig.class);
+    
+    /**
+     * Hands Tomcat a virtual-thread-per-task executor. Virtual threads need JDK 21 or later;
+     * the executor is looked up reflectively so the application still builds for Java 8,
+     * and on older runtimes Tomcat keeps its platform worker pool
+     * @return Protocol handler customizer
+     */
+    @Bean
+    @ConditionalOnProperty(name = "clinic.threads.mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadCustomizer() {
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor == null) {
+            log.warn("clinic.threads.mode=virtual needs JDK 21 or later (running {}); using platform threads",
+                    System.getProperty("java.version"));
+            return protocolHandler -> { };
+        }
+        log.info("Handling requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+    
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.smartclinic.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.security.AdmissionControl;
+import com.smartclinic.security.AdmissionControlFilter;
+import com.smartclinic.security.JwtAuthenticationFilter;
+import com.smartclinic.security.PrincipalResolver;
+import com.smartclinic.service.TokenService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+// Not needed when the application runs without a web server, e.g. for a command-line import
+@Configuration
+@ConditionalOnWebApplication
+public class SecurityConfig {
+    
+    /**
+     * Stateless filter chain: the JWT filter resolves the caller once per request,
+     * and controllers answer unauthenticated calls with their own JSON responses.
+     * Admission control runs next, so per-caller limits know who is calling
+     * @param http HttpSecurity builder
+     * @param tokenService Token service
+     * @param principalResolver Principal resolver
+     * @param admissionControl Admission control
+     * @param objectMapper Object mapper for rejection responses
+     * @return Security filter chain
+     * @throws Exception if the chain cannot be built
+     */
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, TokenService tokenService,
+                                                   PrincipalResolver principalResolver,
+                                                   AdmissionControl admissionControl,
+                                                   ObjectMapper objectMapper) throws Exception {
+        http
+                .csrf().disable()
+                .httpBasic().disable()
+                .formLogin().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .authorizeRequests().anyRequest().permitAll()
+                .and()
+                .addFilterBefore(new JwtAuthenticationFilter(tokenService, principalResolver),
+                        UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(new AdmissionControlFilter(admissionControl, objectMapper),
+                        JwtAuthenticationFilter.class);
+        return http.build();
+    }
+}
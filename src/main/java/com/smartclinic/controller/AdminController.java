@@ -1,15 +1,29 @@
 package com.smartclinic.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.dto.ImportReport;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.entity.Patient;
 import com.smartclinic.service.DoctorService;
+import com.smartclinic.service.ExportService;
+import com.smartclinic.service.ImportService;
 import com.smartclinic.service.PatientService;
+import com.smartclinic.security.ClinicPrincipal;
 import com.smartclinic.service.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +44,21 @@ public class AdminController {
     @Autowired
     private TokenService tokenService;
     
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private ImportService importService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Value("${clinic.export.timeout:1h}")
+    private Duration exportTimeout;
+    
     /**
      * Admin login endpoint
      * @param loginRequest Login credentials
@@ -59,19 +88,18 @@ public class AdminController {
     /**
      * Adds a new doctor to the system
      * @param doctorData Doctor data
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with doctor creation result
      */
     @PostMapping("/doctors")
     public ResponseEntity<Map<String, Object>> addDoctor(
             @RequestBody Map<String, Object> doctorData,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null || !"admin@smartclinic.com".equals(email)) {
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
             response.put("success", false);
             response.put("message", "Invalid or expired admin token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -92,7 +120,7 @@ public class AdminController {
             doctor.setFirstName(doctorData.get("firstName").toString());
             doctor.setLastName(doctorData.get("lastName").toString());
             doctor.setEmail(doctorEmail);
-            doctor.setPassword(doctorData.get("password").toString());
+            doctor.setPassword(passwordEncoder.encode(doctorData.get("password").toString()));
             doctor.setSpecialty(doctorData.get("specialty").toString());
             doctor.setPhoneNumber(doctorData.get("phoneNumber").toString());
             doctor.setAvailableStartTime(LocalTime.parse(doctorData.get("availableStartTime").toString()));
@@ -115,16 +143,15 @@ public class AdminController {
     
     /**
      * Gets all doctors
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with doctors
      */
     @GetMapping("/doctors")
-    public ResponseEntity<Map<String, Object>> getAllDoctors(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<Map<String, Object>> getAllDoctors(@AuthenticationPrincipal ClinicPrincipal principal) {
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null || !"admin@smartclinic.com".equals(email)) {
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
             response.put("success", false);
             response.put("message", "Invalid or expired admin token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -140,16 +167,15 @@ public class AdminController {
     
     /**
      * Gets all patients
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with patients
      */
     @GetMapping("/patients")
-    public ResponseEntity<Map<String, Object>> getAllPatients(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<Map<String, Object>> getAllPatients(@AuthenticationPrincipal ClinicPrincipal principal) {
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null || !"admin@smartclinic.com".equals(email)) {
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
             response.put("success", false);
             response.put("message", "Invalid or expired admin token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -167,27 +193,26 @@ public class AdminController {
      * Updates a doctor
      * @param doctorId Doctor ID
      * @param doctorData Updated doctor data
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with update result
      */
     @PutMapping("/doctors/{doctorId}")
     public ResponseEntity<Map<String, Object>> updateDoctor(
             @PathVariable Long doctorId,
             @RequestBody Map<String, Object> doctorData,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null || !"admin@smartclinic.com".equals(email)) {
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
             response.put("success", false);
             response.put("message", "Invalid or expired admin token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
         try {
-            Optional<Doctor> doctorOpt = doctorService.findByEmail(doctorService.getAllDoctors().get(doctorId.intValue() - 1).getEmail());
+            Optional<Doctor> doctorOpt = doctorService.findForUpdate(doctorId);
             if (doctorOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Doctor not found");
@@ -230,4 +255,110 @@ public class AdminController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
     }
+    
+    /**
+     * Streams a full data set as newline-delimited JSON or CSV
+     * @param type Data set: appointments, prescriptions or patients
+     * @param format Output format: ndjson or csv
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @param servletResponse Response the rows are streamed to
+     * @return Task streaming the rows within clinic.export.timeout, or null once a JSON error response was written
+     * @throws IOException if the error response cannot be written
+     */
+    @GetMapping("/export/{type}")
+    public WebAsyncTask<Void> export(
+            @PathVariable String type,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @AuthenticationPrincipal ClinicPrincipal principal,
+            HttpServletResponse servletResponse) throws IOException {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired admin token");
+            writeJson(servletResponse, HttpStatus.UNAUTHORIZED, response);
+            return null;
+        }
+        
+        if (ExportService.TYPES.contains(type) == false || ExportService.FORMATS.contains(format) == false) {
+            response.put("success", false);
+            response.put("message", "Unsupported export: " + type + " as " + format);
+            writeJson(servletResponse, HttpStatus.BAD_REQUEST, response);
+            return null;
+        }
+        
+        MediaType contentType = "csv".equals(format) ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson");
+        servletResponse.setContentType(contentType.toString());
+        servletResponse.setHeader("Content-Disposition", "attachment; filename=\"" + type + "." + format + "\"");
+        // Exports may run far longer than other async requests, so only they get the long timeout
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            exportService.export(type, format, servletResponse.getOutputStream());
+            return null;
+        });
+    }
+    
+    /**
+     * Bulk-imports doctors, patients or appointments streamed in the request body.
+     * CSV needs a header row; appointments reference doctor and patient by
+     * doctorEmail/patientEmail or doctorId/patientId
+     * @param type Data set: doctors, patients or appointments
+     * @param format Input format: csv or ndjson
+     * @param request Request whose body is read as a stream
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with row counts and per-row errors
+     */
+    @PostMapping("/import/{type}")
+    public ResponseEntity<Map<String, Object>> importRecords(
+            @PathVariable String type,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletRequest request,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired admin token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        if (ImportService.TYPES.contains(type) == false || ImportService.FORMATS.contains(format) == false) {
+            response.put("success", false);
+            response.put("message", "Unsupported import: " + type + " as " + format);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        try {
+            ImportReport report = importService.importRecords(type, format, request.getInputStream());
+            response.put("success", true);
+            response.put("rowsRead", report.getRowsRead());
+            response.put("rowsImported", report.getRowsImported());
+            response.put("rowsRejected", report.getRowsRejected());
+            response.put("errors", report.getErrors());
+            response.put("errorsTruncated", report.isErrorsTruncated());
+            response.put("message", "Import finished");
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error importing " + type + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Writes a JSON response for endpoints whose success body is streamed
+     * @param servletResponse Servlet response
+     * @param status HTTP status
+     * @param response Response map
+     * @throws IOException if the response cannot be written
+     */
+    private void writeJson(HttpServletResponse servletResponse, HttpStatus status, Map<String, Object> response) throws IOException {
+        servletResponse.setStatus(status.value());
+        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(servletResponse.getOutputStream(), response);
+    }
 }
@@ -1,29 +1,47 @@
 package com.smartclinic.controller;
 
+import com.smartclinic.config.ReactiveReadConfig;
+import com.smartclinic.dto.AppointmentView;
+import com.smartclinic.dto.KeysetPage;
+import com.smartclinic.dto.KeysetPageRequest;
 import com.smartclinic.entity.Appointment;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.entity.Patient;
+import com.smartclinic.entity.WaitlistEntry;
 import com.smartclinic.service.AppointmentService;
 import com.smartclinic.service.DoctorService;
 import com.smartclinic.service.PatientService;
-import com.smartclinic.service.TokenService;
+import com.smartclinic.service.WaitlistService;
+import com.smartclinic.security.ClinicPrincipal;
+import com.smartclinic.security.StreamTickets;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/appointments")
 @CrossOrigin(origins = "*")
 public class AppointmentController {
     
+    private static final List<String> STATUSES = Arrays.asList("SCHEDULED", "CONFIRMED", "COMPLETED", "CANCELLED");
+    
     @Autowired
     private AppointmentService appointmentService;
     
@@ -34,47 +52,60 @@ public class AppointmentController {
     private PatientService patientService;
     
     @Autowired
-    private TokenService tokenService;
+    private WaitlistService waitlistService;
+    
+    @Autowired
+    private StreamTickets streamTickets;
+    
+    @Autowired
+    private ObjectProvider<ReactiveReadConfig.ReactiveReadServer> reactiveReadServer;
+    
+    @Value("${clinic.pagination.default-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${clinic.pagination.max-size:100}")
+    private int maxPageSize;
     
     /**
-     * Books a new appointment
+     * Books a new appointment. If the slot is taken and the request sets joinWaitlist, the
+     * patient is put on the waitlist for that time instead and gets the slot if it frees up
      * @param appointmentRequest Appointment data
-     * @param token JWT token for authentication
-     * @return ResponseEntity with appointment result
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return Future of the ResponseEntity with appointment result, completed once the appointment is
+     *         written; 202 with the waitlist entry when waitlisted
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> bookAppointment(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> bookAppointment(
             @RequestBody Map<String, Object> appointmentRequest,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response));
         }
         
         try {
-            // Get patient from token
-            Optional<Patient> patientOpt = patientService.findByEmail(email);
+            // Get patient from the authenticated caller
+            Optional<Patient> patientOpt = principal.isPatient() ? Optional.of(patientService.getReference(principal.getPatientId())) : Optional.empty();
             if (patientOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Patient not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(response));
             }
             
             Patient patient = patientOpt.get();
             
             // Get doctor
             Long doctorId = Long.valueOf(appointmentRequest.get("doctorId").toString());
-            Optional<Doctor> doctorOpt = doctorService.findByEmail(doctorService.getAllDoctors().get(doctorId.intValue() - 1).getEmail());
+            Optional<Doctor> doctorOpt = doctorService.findById(doctorId);
             if (doctorOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Doctor not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(response));
             }
             
             Doctor doctor = doctorOpt.get();
@@ -83,14 +114,6 @@ public class AppointmentController {
             String appointmentTimeStr = appointmentRequest.get("appointmentTime").toString();
             LocalDateTime appointmentTime = LocalDateTime.parse(appointmentTimeStr);
             
-            // Check if doctor is available at that time
-            List<Appointment> existingAppointments = appointmentService.getAppointmentsAtTime(doctor, appointmentTime);
-            if (!existingAppointments.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "Doctor is not available at the requested time");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
-            
             // Create appointment
             Appointment appointment = new Appointment();
             appointment.setAppointmentTime(appointmentTime);
@@ -102,42 +125,212 @@ public class AppointmentController {
                 appointment.setNotes(appointmentRequest.get("notes").toString());
             }
             
-            Appointment savedAppointment = appointmentService.bookAppointment(appointment);
+            // Reserve the slot atomically; the appointment is persisted asynchronously
+            CompletableFuture<Appointment> saved = appointmentService.reserveAppointment(appointment);
+            if (saved == null) {
+                if (Boolean.parseBoolean(String.valueOf(appointmentRequest.get("joinWaitlist")))) {
+                    WaitlistEntry entry = waitlistService.join(principal.getPatientId(), doctor, appointmentTime.toLocalDate(),
+                            appointmentTime.toLocalTime(), appointmentTime.toLocalTime().plusMinutes(1));
+                    response.put("success", true);
+                    response.put("waitlistEntry", entry);
+                    response.put("message", "Doctor is not available at the requested time; you are on the waitlist for it");
+                    return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.ACCEPTED).body(response));
+                }
+                response.put("success", false);
+                response.put("message", "Doctor is not available at the requested time; book with joinWaitlist to wait for it");
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response));
+            }
+            
+            // The request thread is released; the response is written once the persist executor is done with the appointment
+            return saved.handle((appointmentSaved, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    response.put("success", false);
+                    response.put("message", "Error booking appointment: " + cause.getMessage());
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+                }
+                response.put("success", true);
+                response.put("appointment", appointmentSaved);
+                response.put("message", "Appointment booked successfully");
+                return ResponseEntity.ok(response);
+            });
+            
+        } catch (TaskRejectedException e) {
+            response.put("success", false);
+            response.put("message", "Too many bookings in progress, please try again shortly");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response));
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error booking appointment: " + e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response));
+        }
+    }
+    
+    /**
+     * Changes the status of an appointment. Its doctor may set any status; its patient may only
+     * cancel it. Cancelling frees the slot, which goes to the waitlist first
+     * @param appointmentId Appointment ID
+     * @param statusRequest Request with the new status
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the updated appointment
+     */
+    @PutMapping("/{appointmentId}")
+    public ResponseEntity<Map<String, Object>> updateAppointmentStatus(
+            @PathVariable Long appointmentId,
+            @RequestBody Map<String, Object> statusRequest,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Optional<Appointment> appointmentOpt = appointmentService.getAppointmentById(appointmentId);
+            if (appointmentOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Appointment not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            Appointment appointment = appointmentOpt.get();
+            String status = String.valueOf(statusRequest.get("status")).toUpperCase();
+            if (STATUSES.contains(status) == false) {
+                response.put("success", false);
+                response.put("message", "Unknown appointment status: " + statusRequest.get("status"));
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            
+            boolean ownDoctor = principal.isDoctor() && principal.getDoctorId().equals(appointment.getDoctor().getId());
+            boolean ownPatient = principal.isPatient() && principal.getPatientId().equals(appointment.getPatient().getId());
+            if (ownDoctor == false && (ownPatient == false || "CANCELLED".equals(status) == false)) {
+                response.put("success", false);
+                response.put("message", "Not allowed to change this appointment");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+            }
+            // Its slot may have been given away since
+            if ("CANCELLED".equals(appointment.getStatus())) {
+                response.put("success", false);
+                response.put("message", "Cancelled appointments cannot be changed");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            
+            appointment.setStatus(status);
+            Appointment updated = appointmentService.updateAppointment(appointment);
             
             response.put("success", true);
-            response.put("appointment", savedAppointment);
-            response.put("message", "Appointment booked successfully");
+            response.put("appointment", updated);
+            response.put("message", "Appointment updated successfully");
             
             return ResponseEntity.ok(response);
             
+        } catch (OptimisticLockingFailureException e) {
+            response.put("success", false);
+            response.put("message", "Appointment was changed by someone else, please reload it");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             response.put("success", false);
-            response.put("message", "Error booking appointment: " + e.getMessage());
+            response.put("message", "Error updating appointment: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Moves an appointment to another time. Its doctor or its patient may move it; the old slot
+     * is freed only once the new one is reserved
+     * @param appointmentId Appointment ID
+     * @param rescheduleRequest Request with the new appointmentTime
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the moved appointment
+     */
+    @PutMapping("/{appointmentId}/reschedule")
+    public ResponseEntity<Map<String, Object>> rescheduleAppointment(
+            @PathVariable Long appointmentId,
+            @RequestBody Map<String, Object> rescheduleRequest,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Optional<Appointment> appointmentOpt = appointmentService.getAppointmentById(appointmentId);
+            if (appointmentOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Appointment not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            Appointment appointment = appointmentOpt.get();
+            boolean ownDoctor = principal.isDoctor() && principal.getDoctorId().equals(appointment.getDoctor().getId());
+            boolean ownPatient = principal.isPatient() && principal.getPatientId().equals(appointment.getPatient().getId());
+            if (ownDoctor == false && ownPatient == false) {
+                response.put("success", false);
+                response.put("message", "Not allowed to change this appointment");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+            }
+            if ("CANCELLED".equals(appointment.getStatus())) {
+                response.put("success", false);
+                response.put("message", "Cancelled appointments cannot be changed");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            
+            LocalDateTime newTime = LocalDateTime.parse(rescheduleRequest.get("appointmentTime").toString());
+            Optional<Appointment> updated = appointmentService.rescheduleAppointment(appointmentId, newTime);
+            if (updated.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Doctor is not available at the requested time");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            
+            response.put("success", true);
+            response.put("appointment", updated.get());
+            response.put("message", "Appointment rescheduled successfully");
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (OptimisticLockingFailureException e) {
+            response.put("success", false);
+            response.put("message", "Appointment was changed by someone else, please reload it");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error rescheduling appointment: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
     }
     
     /**
      * Gets appointments for a patient
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with appointments
      */
     @GetMapping("/patient")
     public ResponseEntity<Map<String, Object>> getAppointmentsForPatient(
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
         try {
-            Optional<Patient> patientOpt = patientService.findByEmail(email);
+            Optional<Patient> patientOpt = principal.isPatient() ? Optional.of(patientService.getReference(principal.getPatientId())) : Optional.empty();
             if (patientOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Patient not found");
@@ -162,25 +355,24 @@ public class AppointmentController {
     
     /**
      * Gets appointments for a doctor
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with appointments
      */
     @GetMapping("/doctor")
     public ResponseEntity<Map<String, Object>> getAppointmentsForDoctor(
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
         try {
-            Optional<Doctor> doctorOpt = doctorService.findByEmail(email);
+            Optional<Doctor> doctorOpt = principal.isDoctor() ? doctorService.findById(principal.getDoctorId()) : Optional.empty();
             if (doctorOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Doctor not found");
@@ -203,29 +395,63 @@ public class AppointmentController {
         }
     }
     
+    /**
+     * Issues the calling doctor a single-use ticket for opening the schedule update stream, which
+     * is served on the reactive API's port. The stream URL takes the ticket instead of the token,
+     * so no token ends up in access logs
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the ticket, its lifetime in seconds and the stream's port
+     */
+    @PostMapping("/doctor/updates/ticket")
+    public ResponseEntity<Map<String, Object>> issueScheduleUpdatesTicket(
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isDoctor() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        ReactiveReadConfig.ReactiveReadServer server = reactiveReadServer.getIfAvailable();
+        if (server == null || server.getPort() < 0) {
+            response.put("success", false);
+            response.put("message", "Schedule updates are not enabled");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        
+        response.put("success", true);
+        response.put("ticket", streamTickets.issue(principal));
+        response.put("expiresIn", streamTickets.getTicketTtl().getSeconds());
+        response.put("port", server.getPort());
+        response.put("message", "Ticket issued successfully");
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Gets appointments for a doctor on a specific date
      * @param date Date to filter appointments
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with appointments
      */
     @GetMapping("/doctor/date/{date}")
     public ResponseEntity<Map<String, Object>> getAppointmentsForDoctorOnDate(
             @PathVariable String date,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
         try {
-            Optional<Doctor> doctorOpt = doctorService.findByEmail(email);
+            Optional<Doctor> doctorOpt = principal.isDoctor() ? doctorService.findById(principal.getDoctorId()) : Optional.empty();
             if (doctorOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Doctor not found");
@@ -248,4 +474,112 @@ public class AppointmentController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
     }
+    
+    /**
+     * Gets one keyset page of a patient's appointments as lightweight projections
+     * @param from Window start (ISO date-time, inclusive)
+     * @param to Window end (ISO date-time, exclusive)
+     * @param order Sort order by time, "asc" or "desc"
+     * @param size Page size
+     * @param cursor Cursor returned with the previous page
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the page and the cursor of the next one
+     */
+    @GetMapping("/patient/page")
+    public ResponseEntity<Map<String, Object>> getAppointmentPageForPatient(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Optional<Patient> patientOpt = principal.isPatient() ? Optional.of(patientService.getReference(principal.getPatientId())) : Optional.empty();
+            if (patientOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Patient not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            KeysetPageRequest pageRequest = KeysetPageRequest.of(from, to, order, size, cursor, defaultPageSize, maxPageSize);
+            KeysetPage<AppointmentView> page = appointmentService.getAppointmentPageForPatient(patientOpt.get().getId(), pageRequest);
+            
+            response.put("success", true);
+            response.put("appointments", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            response.put("message", "Appointments retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error retrieving appointments: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Gets one keyset page of a doctor's appointments as lightweight projections
+     * @param from Window start (ISO date-time, inclusive)
+     * @param to Window end (ISO date-time, exclusive)
+     * @param order Sort order by time, "asc" or "desc"
+     * @param size Page size
+     * @param cursor Cursor returned with the previous page
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the page and the cursor of the next one
+     */
+    @GetMapping("/doctor/page")
+    public ResponseEntity<Map<String, Object>> getAppointmentPageForDoctor(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Optional<Doctor> doctorOpt = principal.isDoctor() ? doctorService.findById(principal.getDoctorId()) : Optional.empty();
+            if (doctorOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Doctor not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            KeysetPageRequest pageRequest = KeysetPageRequest.of(from, to, order, size, cursor, defaultPageSize, maxPageSize);
+            KeysetPage<AppointmentView> page = appointmentService.getAppointmentPageForDoctor(doctorOpt.get().getId(), pageRequest);
+            
+            response.put("success", true);
+            response.put("appointments", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            response.put("message", "Appointments retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error retrieving appointments: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
 }
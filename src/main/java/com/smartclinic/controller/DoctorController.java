@@ -1,11 +1,17 @@
 package com.smartclinic.controller;
 
+import com.smartclinic.dto.AvailableSlot;
+import com.smartclinic.dto.DoctorAvailability;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.service.DoctorService;
+import com.smartclinic.security.ClinicPrincipal;
+import com.smartclinic.security.LoginGate;
 import com.smartclinic.service.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -13,6 +19,8 @@ import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/doctors")
@@ -25,24 +33,35 @@ public class DoctorController {
     @Autowired
     private TokenService tokenService;
     
+    @Autowired
+    private LoginGate loginGate;
+    
+    @Value("${clinic.pagination.default-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${clinic.pagination.max-size:100}")
+    private int maxPageSize;
+    
+    @Value("${clinic.discovery.max-days:60}")
+    private int maxDiscoveryDays;
+    
     /**
      * Exposes a GET endpoint for doctor availability using dynamic parameters
      * @param doctorId Doctor ID
      * @param date Date to check availability
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with available time slots
      */
     @GetMapping("/{doctorId}/availability")
     public ResponseEntity<Map<String, Object>> getDoctorAvailability(
             @PathVariable Long doctorId,
             @RequestParam String date,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -66,18 +85,125 @@ public class DoctorController {
         }
     }
     
+    /**
+     * Finds the earliest free slot across all doctors of a specialty
+     * @param specialty Medical specialty
+     * @param from First day to search (defaults to today)
+     * @param days Number of days to search
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the earliest available slot
+     */
+    @GetMapping("/availability/first")
+    public ResponseEntity<Map<String, Object>> getFirstAvailableSlot(
+            @RequestParam String specialty,
+            @RequestParam(required = false) String from,
+            @RequestParam(defaultValue = "7") int days,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            LocalDate fromDate = from != null ? LocalDate.parse(from) : LocalDate.now();
+            Optional<AvailableSlot> slot = doctorService.findFirstAvailableSlot(specialty, fromDate, days);
+            
+            response.put("success", true);
+            response.put("slot", slot.orElse(null));
+            response.put("message", slot.isPresent() ? "Available slot found" : "No available slot in the requested period");
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error retrieving availability: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Finds doctors by specialty, name prefix and time-of-day window that have a free slot
+     * within the given number of days, ordered by soonest free slot
+     * @param specialty Medical specialty (optional)
+     * @param name Name prefix (optional)
+     * @param from Start of the time-of-day window, HH:mm (defaults to the start of the day)
+     * @param to End of the time-of-day window, HH:mm (defaults to the end of the day)
+     * @param date First day to search (defaults to today)
+     * @param days Number of days to search
+     * @param page Page number, from 0
+     * @param size Page size
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with doctors and their soonest free slot
+     */
+    @GetMapping("/discover")
+    public ResponseEntity<Map<String, Object>> discoverDoctors(
+            @RequestParam(required = false) String specialty,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String date,
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            LocalTime fromTime = from != null ? LocalTime.parse(from) : LocalTime.MIDNIGHT;
+            LocalTime toTime = to != null ? LocalTime.parse(to) : LocalTime.MIDNIGHT;
+            if (toTime.equals(LocalTime.MIDNIGHT) == false && toTime.isAfter(fromTime) == false) {
+                response.put("success", false);
+                response.put("message", "The end of the time window must be after its start");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            if (days < 1 || days > maxDiscoveryDays || page < 0) {
+                response.put("success", false);
+                response.put("message", "days must be between 1 and " + maxDiscoveryDays + " and page must not be negative");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+            LocalDate fromDate = date != null ? LocalDate.parse(date) : LocalDate.now();
+            
+            List<DoctorAvailability> doctors = doctorService.discover(specialty, name, fromTime, toTime, fromDate, days, page, pageSize);
+            boolean hasMore = doctors.size() > pageSize;
+            response.put("success", true);
+            response.put("doctors", hasMore ? doctors.subList(0, pageSize) : doctors);
+            response.put("page", page);
+            response.put("size", pageSize);
+            response.put("hasMore", hasMore);
+            response.put("message", "Doctors retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error discovering doctors: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
     /**
      * Gets all doctors
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with list of doctors
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllDoctors(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<Map<String, Object>> getAllDoctors(@AuthenticationPrincipal ClinicPrincipal principal) {
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -94,19 +220,18 @@ public class DoctorController {
     /**
      * Gets doctors by specialty
      * @param specialty Medical specialty
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with list of doctors
      */
     @GetMapping("/specialty/{specialty}")
     public ResponseEntity<Map<String, Object>> getDoctorsBySpecialty(
             @PathVariable String specialty,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -121,27 +246,28 @@ public class DoctorController {
     }
     
     /**
-     * Searches doctors by name
-     * @param name Doctor's name
-     * @param token JWT token for authentication
+     * Searches doctors by name or specialty, for typeahead
+     * @param name Search text
+     * @param limit Maximum number of results (optional)
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with list of doctors
      */
     @GetMapping("/search")
     public ResponseEntity<Map<String, Object>> searchDoctorsByName(
             @RequestParam String name,
-            @RequestHeader("Authorization") String token) {
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
-        List<Doctor> doctors = doctorService.findByNameContaining(name);
+        List<Doctor> doctors = doctorService.searchDoctors(name, limit);
         response.put("success", true);
         response.put("doctors", doctors);
         response.put("message", "Doctors retrieved successfully");
@@ -152,27 +278,32 @@ public class DoctorController {
     /**
      * Doctor login endpoint
      * @param loginRequest Login credentials
-     * @return ResponseEntity with login result
+     * @return Future of the ResponseEntity with login result; 429 or 503 with Retry-After when throttled
      */
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> doctorLogin(@RequestBody Map<String, String> loginRequest) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> doctorLogin(@RequestBody Map<String, String> loginRequest) {
         String email = loginRequest.get("email");
         String password = loginRequest.get("password");
         
-        Doctor doctor = doctorService.validateDoctorLogin(email, password);
-        if (doctor != null) {
-            String token = tokenService.generateToken(doctor.getEmail());
-            response.put("success", true);
-            response.put("token", token);
-            response.put("doctor", doctor);
-            response.put("message", "Login successful");
-            return ResponseEntity.ok(response);
-        } else {
-            response.put("success", false);
-            response.put("message", "Invalid credentials");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-        }
+        // Password hashing runs on the login executor, not on this request thread
+        return loginGate.verify("doctor:" + email, () -> doctorService.validateDoctorLogin(email, password)).handle((doctor, error) -> {
+            if (error != null) {
+                return loginGate.errorResponse(error);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            if (doctor != null) {
+                String token = tokenService.generateToken(doctor.getEmail());
+                response.put("success", true);
+                response.put("token", token);
+                response.put("doctor", doctor);
+                response.put("message", "Login successful");
+                return ResponseEntity.ok(response);
+            } else {
+                response.put("success", false);
+                response.put("message", "Invalid credentials");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            }
+        });
     }
 }
@@ -2,16 +2,21 @@ package com.smartclinic.controller;
 
 import com.smartclinic.entity.Patient;
 import com.smartclinic.service.PatientService;
+import com.smartclinic.security.ClinicPrincipal;
+import com.smartclinic.security.LoginGate;
 import com.smartclinic.service.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/patients")
@@ -24,31 +29,42 @@ public class PatientController {
     @Autowired
     private TokenService tokenService;
     
+    @Autowired
+    private LoginGate loginGate;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
     /**
      * Patient login endpoint
      * @param loginRequest Login credentials
-     * @return ResponseEntity with login result
+     * @return Future of the ResponseEntity with login result; 429 or 503 with Retry-After when throttled
      */
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> patientLogin(@RequestBody Map<String, String> loginRequest) {
-        Map<String, Object> response = new HashMap<>();
-        
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> patientLogin(@RequestBody Map<String, String> loginRequest) {
         String email = loginRequest.get("email");
         String password = loginRequest.get("password");
         
-        Patient patient = patientService.validatePatientLogin(email, password);
-        if (patient != null) {
-            String token = tokenService.generateToken(patient.getEmail());
-            response.put("success", true);
-            response.put("token", token);
-            response.put("patient", patient);
-            response.put("message", "Login successful");
-            return ResponseEntity.ok(response);
-        } else {
-            response.put("success", false);
-            response.put("message", "Invalid credentials");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-        }
+        // Password hashing runs on the login executor, not on this request thread
+        return loginGate.verify("patient:" + email, () -> patientService.validatePatientLogin(email, password)).handle((patient, error) -> {
+            if (error != null) {
+                return loginGate.errorResponse(error);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            if (patient != null) {
+                String token = tokenService.generateToken(patient.getEmail());
+                response.put("success", true);
+                response.put("token", token);
+                response.put("patient", patient);
+                response.put("message", "Login successful");
+                return ResponseEntity.ok(response);
+            } else {
+                response.put("success", false);
+                response.put("message", "Invalid credentials");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            }
+        });
     }
     
     /**
@@ -75,7 +91,7 @@ public class PatientController {
             patient.setFirstName(patientData.get("firstName").toString());
             patient.setLastName(patientData.get("lastName").toString());
             patient.setEmail(email);
-            patient.setPassword(patientData.get("password").toString());
+            patient.setPassword(passwordEncoder.encode(patientData.get("password").toString()));
             patient.setPhoneNumber(patientData.get("phoneNumber").toString());
             patient.setDateOfBirth(java.time.LocalDate.parse(patientData.get("dateOfBirth").toString()));
             patient.setAddress(patientData.get("address").toString());
@@ -97,16 +113,15 @@ public class PatientController {
     
     /**
      * Gets all patients (admin only)
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with patients
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllPatients(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<Map<String, Object>> getAllPatients(@AuthenticationPrincipal ClinicPrincipal principal) {
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -123,26 +138,25 @@ public class PatientController {
     /**
      * Gets patient by ID
      * @param patientId Patient ID
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with patient
      */
     @GetMapping("/{patientId}")
     public ResponseEntity<Map<String, Object>> getPatientById(
             @PathVariable Long patientId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
         try {
-            Optional<Patient> patientOpt = patientService.findByEmail(email);
+            Optional<Patient> patientOpt = principal.isPatient() ? patientService.findById(principal.getPatientId()) : Optional.empty();
             if (patientOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Patient not found");
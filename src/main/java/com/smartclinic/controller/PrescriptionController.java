@@ -1,15 +1,20 @@
 package com.smartclinic.controller;
 
+import com.smartclinic.dto.KeysetPage;
+import com.smartclinic.dto.KeysetPageRequest;
+import com.smartclinic.dto.PrescriptionView;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.entity.Patient;
 import com.smartclinic.entity.Prescription;
 import com.smartclinic.service.DoctorService;
 import com.smartclinic.service.PatientService;
 import com.smartclinic.service.PrescriptionService;
-import com.smartclinic.service.TokenService;
+import com.smartclinic.security.ClinicPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -31,33 +36,35 @@ public class PrescriptionController {
     @Autowired
     private PatientService patientService;
     
-    @Autowired
-    private TokenService tokenService;
+    @Value("${clinic.pagination.default-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${clinic.pagination.max-size:100}")
+    private int maxPageSize;
     
     /**
      * POST endpoint saves a prescription with token and request body validation
      * @param prescriptionRequest Prescription data
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with success or error message
      */
     @PostMapping
     public ResponseEntity<Map<String, Object>> savePrescription(
             @RequestBody Map<String, Object> prescriptionRequest,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
         try {
-            // Get doctor from token
-            Optional<Doctor> doctorOpt = doctorService.findByEmail(email);
+            // Get doctor from the authenticated caller
+            Optional<Doctor> doctorOpt = principal.isDoctor() ? doctorService.findById(principal.getDoctorId()) : Optional.empty();
             if (doctorOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Doctor not found");
@@ -103,19 +110,18 @@ public class PrescriptionController {
     /**
      * Gets prescriptions for a patient
      * @param patientId Patient ID
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with prescriptions
      */
     @GetMapping("/patient/{patientId}")
     public ResponseEntity<Map<String, Object>> getPrescriptionsForPatient(
             @PathVariable Long patientId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -147,25 +153,24 @@ public class PrescriptionController {
     
     /**
      * Gets prescriptions for a doctor
-     * @param token JWT token for authentication
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
      * @return ResponseEntity with prescriptions
      */
     @GetMapping("/doctor")
     public ResponseEntity<Map<String, Object>> getPrescriptionsForDoctor(
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal ClinicPrincipal principal) {
         
         Map<String, Object> response = new HashMap<>();
         
-        // Validate token
-        String email = tokenService.validateToken(token.replace("Bearer ", ""));
-        if (email == null) {
+        // Validate caller
+        if (principal == null) {
             response.put("success", false);
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
         
         try {
-            Optional<Doctor> doctorOpt = doctorService.findByEmail(email);
+            Optional<Doctor> doctorOpt = principal.isDoctor() ? doctorService.findById(principal.getDoctorId()) : Optional.empty();
             if (doctorOpt.isPresent() == false) {
                 response.put("success", false);
                 response.put("message", "Doctor not found");
@@ -187,4 +192,58 @@ public class PrescriptionController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
     }
+    
+    /**
+     * Gets one keyset page of a doctor's prescriptions as lightweight projections
+     * @param from Window start (ISO date-time, inclusive)
+     * @param to Window end (ISO date-time, exclusive)
+     * @param order Sort order by time, "asc" or "desc"
+     * @param size Page size
+     * @param cursor Cursor returned with the previous page
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the page and the cursor of the next one
+     */
+    @GetMapping("/doctor/page")
+    public ResponseEntity<Map<String, Object>> getPrescriptionPageForDoctor(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Optional<Doctor> doctorOpt = principal.isDoctor() ? doctorService.findById(principal.getDoctorId()) : Optional.empty();
+            if (doctorOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Doctor not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            KeysetPageRequest pageRequest = KeysetPageRequest.of(from, to, order, size, cursor, defaultPageSize, maxPageSize);
+            KeysetPage<PrescriptionView> page = prescriptionService.getPrescriptionPageForDoctor(doctorOpt.get().getId(), pageRequest);
+            
+            response.put("success", true);
+            response.put("prescriptions", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            response.put("message", "Prescriptions retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error retrieving prescriptions: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
 }
@@ -0,0 +1,135 @@
+package com.smartclinic.controller;
+
+import com.smartclinic.dto.AppointmentView;
+import com.smartclinic.dto.ScheduleUpdate;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.repository.ReactiveReadRepository;
+import com.smartclinic.security.ClinicPrincipal;
+import com.smartclinic.security.ReactiveAdmissionFilter;
+import com.smartclinic.service.ScheduleUpdateHub;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Handlers of the reactive read API. Results are streamed as newline-delimited JSON,
+ * one object per line, at the pace the client reads them; schedule updates are pushed
+ * as server-sent events. The caller is resolved and admitted by ReactiveAdmissionFilter.
+ */
+public class ReactiveReadHandler {
+    
+    private final ReactiveReadRepository reactiveReadRepository;
+    
+    private final ScheduleUpdateHub scheduleUpdateHub;
+    
+    // One timer for every open update stream, keeping idle connections from being cut by proxies
+    private final Flux<ServerSentEvent<ScheduleUpdate>> heartbeat;
+    
+    public ReactiveReadHandler(ReactiveReadRepository reactiveReadRepository, ScheduleUpdateHub scheduleUpdateHub,
+                               Duration heartbeatInterval) {
+        this.reactiveReadRepository = reactiveReadRepository;
+        this.scheduleUpdateHub = scheduleUpdateHub;
+        this.heartbeat = Flux.interval(heartbeatInterval)
+                .map(tick -> ServerSentEvent.<ScheduleUpdate>builder().comment("heartbeat").build())
+                .share();
+    }
+    
+    /**
+     * Streams all doctors, optionally of one specialty
+     * @param request Request with an optional "specialty" query parameter
+     * @return NDJSON stream of doctors
+     */
+    public Mono<ServerResponse> doctors(ServerRequest request) {
+        return withPrincipal(request, principal ->
+                stream(reactiveReadRepository.findDoctors(request.queryParam("specialty").orElse(null)), Doctor.class));
+    }
+    
+    /**
+     * Streams the calling patient's appointment history, most recent first
+     * @param request Request
+     * @return NDJSON stream of appointments
+     */
+    public Mono<ServerResponse> patientAppointments(ServerRequest request) {
+        return withPrincipal(request, principal -> {
+            if (principal.isPatient() == false) {
+                return error(HttpStatus.NOT_FOUND, "Patient not found");
+            }
+            return stream(reactiveReadRepository.findAppointmentsForPatient(principal.getPatientId()), AppointmentView.class);
+        });
+    }
+    
+    /**
+     * Streams the calling doctor's schedule for one day
+     * @param request Request with the date (yyyy-MM-dd) as path variable
+     * @return NDJSON stream of appointments
+     */
+    public Mono<ServerResponse> doctorAppointmentsOnDate(ServerRequest request) {
+        return withPrincipal(request, principal -> {
+            if (principal.isDoctor() == false) {
+                return error(HttpStatus.NOT_FOUND, "Doctor not found");
+            }
+            LocalDate date;
+            try {
+                date = LocalDate.parse(request.pathVariable("date"));
+            } catch (DateTimeParseException e) {
+                return error(HttpStatus.BAD_REQUEST, "Invalid date: " + request.pathVariable("date"));
+            }
+            return stream(reactiveReadRepository.findAppointmentsForDoctorOnDate(principal.getDoctorId(), date), AppointmentView.class);
+        });
+    }
+    
+    /**
+     * Pushes the calling doctor's appointment changes as they are committed, until the client disconnects.
+     * Browsers cannot set headers on an EventSource, so instead of the token a ticket from
+     * POST /api/appointments/doctor/updates/ticket may be passed as "ticket" query parameter
+     * @param request Request
+     * @return Server-sent event stream of "appointment" events
+     */
+    public Mono<ServerResponse> doctorScheduleUpdates(ServerRequest request) {
+        return withPrincipal(request, principal -> {
+            if (principal.isDoctor() == false) {
+                return error(HttpStatus.NOT_FOUND, "Doctor not found");
+            }
+            Flux<ServerSentEvent<ScheduleUpdate>> updates = scheduleUpdateHub.updatesFor(principal.getDoctorId())
+                    .map(update -> ServerSentEvent.builder(update).event("appointment").build());
+            // The portals are served from the servlet port, so the stream is cross-origin for them
+            return ServerResponse.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                    .body(Flux.merge(updates, heartbeat), new ParameterizedTypeReference<ServerSentEvent<ScheduleUpdate>>() {});
+        });
+    }
+    
+    private Mono<ServerResponse> withPrincipal(ServerRequest request, Function<ClinicPrincipal, Mono<ServerResponse>> handler) {
+        Optional<Object> principal = request.attribute(ReactiveAdmissionFilter.PRINCIPAL_ATTRIBUTE);
+        if (principal.isPresent() == false) {
+            return error(HttpStatus.UNAUTHORIZED, "Invalid or expired token");
+        }
+        return handler.apply((ClinicPrincipal) principal.get());
+    }
+    
+    private static <T> Mono<ServerResponse> stream(Flux<T> results, Class<T> type) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(results, type);
+    }
+    
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(response);
+    }
+}
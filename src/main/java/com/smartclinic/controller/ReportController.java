@@ -0,0 +1,274 @@
+package com.smartclinic.controller;
+
+import com.smartclinic.dto.AppointmentCounts;
+import com.smartclinic.dto.DoctorPatientCount;
+import com.smartclinic.entity.AppointmentRollup;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.security.ClinicPrincipal;
+import com.smartclinic.service.AppointmentReportService;
+import com.smartclinic.service.DoctorService;
+import com.smartclinic.service.UniquePatientAnalytics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Admin appointment reports. Each one reads the appointment rollups, one row per day and
+ * status, so its cost grows with the length of the period rather than with the number of appointments.
+ */
+@RestController
+@RequestMapping("/api/admin/reports")
+@CrossOrigin(origins = "*")
+public class ReportController {
+    
+    @Autowired
+    private AppointmentReportService appointmentReportService;
+    
+    @Autowired
+    private DoctorService doctorService;
+    
+    @Autowired
+    private UniquePatientAnalytics uniquePatientAnalytics;
+    
+    @Value("${clinic.analytics.max-ranking-size:100}")
+    private int maxRankingSize;
+    
+    /**
+     * Gets a doctor's appointment counts by status for one day
+     * @param doctorId Doctor ID
+     * @param date Day (yyyy-MM-dd)
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the doctor and the day's counts
+     */
+    @GetMapping("/doctors/{doctorId}/daily")
+    public ResponseEntity<Map<String, Object>> getDailyReport(
+            @PathVariable Long doctorId,
+            @RequestParam String date,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired admin token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Optional<Doctor> doctorOpt = doctorService.findById(doctorId);
+            if (doctorOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Doctor not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            LocalDate day = LocalDate.parse(date);
+            AppointmentCounts counts = appointmentReportService.getTotals(doctorId, day, day.plusDays(1));
+            response.put("success", true);
+            response.put("doctor", doctorOpt.get());
+            response.put("date", day);
+            response.put("counts", counts.getByStatus());
+            response.put("total", counts.getTotal());
+            response.put("message", "Daily report retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error retrieving daily report: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Gets appointment counts by status for each day of a month, clinic-wide or for one doctor
+     * @param year Year
+     * @param month Month (1-12)
+     * @param doctorId Doctor ID, or none for the whole clinic
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the counts of each day that had appointments
+     */
+    @GetMapping("/monthly")
+    public ResponseEntity<Map<String, Object>> getMonthlyReport(
+            @RequestParam int year,
+            @RequestParam int month,
+            @RequestParam(required = false) Long doctorId,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired admin token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            LocalDate monthStart = LocalDate.of(year, month, 1);
+            Long rollupDoctorId = doctorId != null ? doctorId : AppointmentRollup.CLINIC_TOTAL;
+            response.put("success", true);
+            response.put("year", year);
+            response.put("month", month);
+            response.put("doctorId", doctorId);
+            response.put("days", appointmentReportService.getDailyCounts(rollupDoctorId, monthStart, monthStart.plusMonths(1)));
+            response.put("message", "Monthly report retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error retrieving monthly report: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Gets a doctor's appointment totals and completion rate over a period
+     * @param doctorId Doctor ID
+     * @param from First day (yyyy-MM-dd)
+     * @param to Last day (yyyy-MM-dd, inclusive)
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the doctor's performance figures
+     */
+    @GetMapping("/doctors/{doctorId}/performance")
+    public ResponseEntity<Map<String, Object>> getPerformanceReport(
+            @PathVariable Long doctorId,
+            @RequestParam String from,
+            @RequestParam String to,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired admin token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Optional<Doctor> doctorOpt = doctorService.findById(doctorId);
+            if (doctorOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Doctor not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            LocalDate fromDate = LocalDate.parse(from);
+            LocalDate toDate = LocalDate.parse(to);
+            AppointmentCounts totals = appointmentReportService.getTotals(doctorId, fromDate, toDate.plusDays(1));
+            long completed = totals.get("COMPLETED");
+            response.put("success", true);
+            response.put("doctor", doctorOpt.get());
+            response.put("from", fromDate);
+            response.put("to", toDate);
+            response.put("totalAppointments", totals.getTotal());
+            response.put("completedAppointments", completed);
+            response.put("cancelledAppointments", totals.get("CANCELLED"));
+            // Left out while the sketches are still being built after startup
+            response.put("uniquePatients", uniquePatientAnalytics.isReady()
+                    ? uniquePatientAnalytics.estimate(doctorId, fromDate, toDate.plusDays(1)) : null);
+            response.put("completionRate", totals.getTotal() == 0 ? null
+                    : BigDecimal.valueOf(completed * 100.0 / totals.getTotal()).setScale(2, RoundingMode.HALF_UP));
+            response.put("message", "Performance report retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error retrieving performance report: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Ranks doctors by unique patients over a month, or over a year when no month is given.
+     * Counts are estimates with a relative error of a few percent
+     * @param year Year
+     * @param month Month (1-12), optional
+     * @param limit Number of doctors to return
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the ranked doctors and their estimated patient counts
+     */
+    @GetMapping("/top-doctors")
+    public ResponseEntity<Map<String, Object>> getTopDoctors(
+            @RequestParam int year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(defaultValue = "1") int limit,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired admin token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        if (uniquePatientAnalytics.isReady() == false) {
+            response.put("success", false);
+            response.put("message", "Unique patient counts are still being built, try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+        
+        try {
+            LocalDate from = LocalDate.of(year, month != null ? month : 1, 1);
+            LocalDate to = month != null ? from.plusMonths(1) : from.plusYears(1);
+            int size = Math.max(1, Math.min(limit, maxRankingSize));
+            
+            List<Map<String, Object>> doctors = new ArrayList<>();
+            for (DoctorPatientCount count : uniquePatientAnalytics.topDoctors(from, to, size)) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("doctor", doctorService.findById(count.getDoctorId()).orElse(null));
+                entry.put("patientCount", count.getPatientCount());
+                doctors.add(entry);
+            }
+            response.put("success", true);
+            response.put("year", year);
+            response.put("month", month);
+            response.put("doctors", doctors);
+            response.put("message", "Doctor ranking retrieved successfully");
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error ranking doctors: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Recomputes the rollups from the appointments table
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the rebuild result
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(@AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isAdmin() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired admin token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        appointmentReportService.rebuild();
+        response.put("success", true);
+        response.put("message", "Appointment rollups rebuilt");
+        return ResponseEntity.ok(response);
+    }
+}
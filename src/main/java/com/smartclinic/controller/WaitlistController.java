@@ -0,0 +1,137 @@
+package com.smartclinic.controller;
+
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.entity.WaitlistEntry;
+import com.smartclinic.security.ClinicPrincipal;
+import com.smartclinic.service.DoctorService;
+import com.smartclinic.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Patients' waitlists: instead of polling for a slot, a patient waits for a doctor over a day
+ * or part of one and is booked into the first slot that frees up in it.
+ */
+@RestController
+@RequestMapping("/api/waitlist")
+@CrossOrigin(origins = "*")
+public class WaitlistController {
+    
+    @Autowired
+    private WaitlistService waitlistService;
+    
+    @Autowired
+    private DoctorService doctorService;
+    
+    /**
+     * Puts the calling patient on a doctor's waitlist
+     * @param waitlistRequest doctorId, date (yyyy-MM-dd), and optionally startTime and endTime (HH:mm)
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the waitlist entry
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> joinWaitlist(
+            @RequestBody Map<String, Object> waitlistRequest,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isPatient() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        try {
+            Long doctorId = Long.valueOf(waitlistRequest.get("doctorId").toString());
+            Optional<Doctor> doctorOpt = doctorService.findById(doctorId);
+            if (doctorOpt.isPresent() == false) {
+                response.put("success", false);
+                response.put("message", "Doctor not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            
+            LocalDate date = LocalDate.parse(waitlistRequest.get("date").toString());
+            LocalTime startTime = waitlistRequest.get("startTime") != null ? LocalTime.parse(waitlistRequest.get("startTime").toString()) : null;
+            LocalTime endTime = waitlistRequest.get("endTime") != null ? LocalTime.parse(waitlistRequest.get("endTime").toString()) : null;
+            WaitlistEntry entry = waitlistService.join(principal.getPatientId(), doctorOpt.get(), date, startTime, endTime);
+            
+            response.put("success", true);
+            response.put("waitlistEntry", entry);
+            response.put("message", "You are on the waitlist");
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error joining waitlist: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Gets the calling patient's waitlist entries, newest first
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the entries, including those already booked, left or expired
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getWaitlistEntries(@AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isPatient() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        List<WaitlistEntry> entries = waitlistService.getEntriesForPatient(principal.getPatientId());
+        response.put("success", true);
+        response.put("waitlistEntries", entries);
+        response.put("message", "Waitlist entries retrieved successfully");
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Takes the calling patient off a waitlist
+     * @param entryId Waitlist entry ID
+     * @param principal Authenticated caller, resolved by JwtAuthenticationFilter
+     * @return ResponseEntity with the result
+     */
+    @DeleteMapping("/{entryId}")
+    public ResponseEntity<Map<String, Object>> leaveWaitlist(
+            @PathVariable Long entryId,
+            @AuthenticationPrincipal ClinicPrincipal principal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        
+        // Validate caller
+        if (principal == null || principal.isPatient() == false) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        if (waitlistService.leave(principal.getPatientId(), entryId) == false) {
+            response.put("success", false);
+            response.put("message", "No waiting entry found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        
+        response.put("success", true);
+        response.put("message", "You have left the waitlist");
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,45 @@
+package com.smartclinic.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Appointment counts by status for one day, or summed over a range of days
+ */
+public class AppointmentCounts {
+    
+    private final LocalDate date;
+    
+    private final Map<String, Long> byStatus = new TreeMap<>();
+    
+    private long total;
+    
+    public AppointmentCounts(LocalDate date) {
+        this.date = date;
+    }
+    
+    public void add(String status, long count) {
+        byStatus.merge(status, count, Long::sum);
+        total += count;
+    }
+    
+    public long get(String status) {
+        return byStatus.getOrDefault(status, 0L);
+    }
+    
+    /**
+     * @return Day counted, or null for counts summed over a range
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public Map<String, Long> getByStatus() {
+        return byStatus;
+    }
+    
+    public long getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,91 @@
+package com.smartclinic.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of an appointment for listing endpoints
+ */
+public class AppointmentView {
+    
+    private final Long id;
+    
+    private final LocalDateTime appointmentTime;
+    
+    private final String status;
+    
+    private final String notes;
+    
+    private final Long doctorId;
+    
+    private final String doctorFirstName;
+    
+    private final String doctorLastName;
+    
+    private final String doctorSpecialty;
+    
+    private final Long patientId;
+    
+    private final String patientFirstName;
+    
+    private final String patientLastName;
+    
+    public AppointmentView(Long id, LocalDateTime appointmentTime, String status, String notes,
+                           Long doctorId, String doctorFirstName, String doctorLastName, String doctorSpecialty,
+                           Long patientId, String patientFirstName, String patientLastName) {
+        this.id = id;
+        this.appointmentTime = appointmentTime;
+        this.status = status;
+        this.notes = notes;
+        this.doctorId = doctorId;
+        this.doctorFirstName = doctorFirstName;
+        this.doctorLastName = doctorLastName;
+        this.doctorSpecialty = doctorSpecialty;
+        this.patientId = patientId;
+        this.patientFirstName = patientFirstName;
+        this.patientLastName = patientLastName;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public LocalDateTime getAppointmentTime() {
+        return appointmentTime;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public String getNotes() {
+        return notes;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public String getDoctorFirstName() {
+        return doctorFirstName;
+    }
+    
+    public String getDoctorLastName() {
+        return doctorLastName;
+    }
+    
+    public String getDoctorSpecialty() {
+        return doctorSpecialty;
+    }
+    
+    public Long getPatientId() {
+        return patientId;
+    }
+    
+    public String getPatientFirstName() {
+        return patientFirstName;
+    }
+    
+    public String getPatientLastName() {
+        return patientLastName;
+    }
+}
@@ -0,0 +1,34 @@
+package com.smartclinic.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A free appointment slot of a doctor
+ */
+public class AvailableSlot {
+    
+    private final Long doctorId;
+    
+    private final LocalDate date;
+    
+    private final LocalTime time;
+    
+    public AvailableSlot(Long doctorId, LocalDate date, LocalTime time) {
+        this.doctorId = doctorId;
+        this.date = date;
+        this.time = time;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public LocalTime getTime() {
+        return time;
+    }
+}
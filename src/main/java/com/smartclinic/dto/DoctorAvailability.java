@@ -0,0 +1,26 @@
+package com.smartclinic.dto;
+
+import com.smartclinic.entity.Doctor;
+
+/**
+ * A doctor together with their soonest free slot
+ */
+public class DoctorAvailability {
+    
+    private final Doctor doctor;
+    
+    private final AvailableSlot nextAvailableSlot;
+    
+    public DoctorAvailability(Doctor doctor, AvailableSlot nextAvailableSlot) {
+        this.doctor = doctor;
+        this.nextAvailableSlot = nextAvailableSlot;
+    }
+    
+    public Doctor getDoctor() {
+        return doctor;
+    }
+    
+    public AvailableSlot getNextAvailableSlot() {
+        return nextAvailableSlot;
+    }
+}
@@ -0,0 +1,24 @@
+package com.smartclinic.dto;
+
+/**
+ * A doctor's estimated number of unique patients over a period
+ */
+public class DoctorPatientCount {
+    
+    private final Long doctorId;
+    
+    private final long patientCount;
+    
+    public DoctorPatientCount(Long doctorId, long patientCount) {
+        this.doctorId = doctorId;
+        this.patientCount = patientCount;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public long getPatientCount() {
+        return patientCount;
+    }
+}
@@ -0,0 +1,100 @@
+package com.smartclinic.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: row counts plus the first rejected rows and why they were rejected.
+ * Updated by the reading and the writing side of an import, so mutators are synchronized.
+ */
+public class ImportReport {
+    
+    private final String type;
+    
+    private final int maxErrors;
+    
+    private long rowsRead;
+    
+    private long rowsImported;
+    
+    private long rowsRejected;
+    
+    private final List<RowError> errors = new ArrayList<>();
+    
+    private boolean errorsTruncated;
+    
+    public ImportReport(String type, int maxErrors) {
+        this.type = type;
+        this.maxErrors = maxErrors;
+    }
+    
+    public synchronized void addRead(long rows) {
+        rowsRead += rows;
+    }
+    
+    public synchronized void addImported(long rows) {
+        rowsImported += rows;
+    }
+    
+    /**
+     * Records rejected rows, keeping the message only while the error list is below its cap
+     * @param line Line number of the first rejected row
+     * @param rows Number of rows rejected
+     * @param message Reason
+     */
+    public synchronized void reject(long line, long rows, String message) {
+        rowsRejected += rows;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public synchronized long getRowsRead() {
+        return rowsRead;
+    }
+    
+    public synchronized long getRowsImported() {
+        return rowsImported;
+    }
+    
+    public synchronized long getRowsRejected() {
+        return rowsRejected;
+    }
+    
+    public synchronized List<RowError> getErrors() {
+        return new ArrayList<>(errors);
+    }
+    
+    public synchronized boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+    
+    /**
+     * A rejected row, by line number in the input
+     */
+    public static class RowError {
+        
+        private final long line;
+        
+        private final String message;
+        
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+        
+        public long getLine() {
+            return line;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.smartclinic.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (timestamp, id), encoded as an opaque token
+ */
+public class KeysetCursor {
+    
+    private final LocalDateTime time;
+    
+    private final Long id;
+    
+    public KeysetCursor(LocalDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+    
+    public LocalDateTime getTime() {
+        return time;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    /**
+     * Encodes the cursor for use in a URL
+     * @return Opaque cursor token
+     */
+    public String encode() {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodes a cursor token produced by {@link #encode()}
+     * @param token Cursor token
+     * @return Decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = raw.indexOf('|');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+    }
+}
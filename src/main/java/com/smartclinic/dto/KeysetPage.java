@@ -0,0 +1,47 @@
+package com.smartclinic.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing
+ * @param <T> Row type
+ */
+public class KeysetPage<T> {
+    
+    private final List<T> items;
+    
+    private final String nextCursor;
+    
+    private KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * Builds a page from rows fetched with a limit of size + 1
+     * @param rows Fetched rows; one extra row signals that more pages follow
+     * @param size Requested page size
+     * @param keyOf Extracts the keyset position of a row
+     * @return Page with at most size items and the cursor of the next page, if any
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, Function<T, KeysetCursor> keyOf) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new KeysetPage<>(items, keyOf.apply(items.get(size - 1)).encode());
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+}
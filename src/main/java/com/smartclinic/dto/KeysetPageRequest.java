@@ -0,0 +1,95 @@
+package com.smartclinic.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keyset page request: time window, sort direction, page size and resume position
+ */
+public class KeysetPageRequest {
+    
+    /** Lower bound used when no window start is given (MySQL DATETIME minimum) */
+    public static final LocalDateTime MIN_TIME = LocalDateTime.of(1000, 1, 1, 0, 0);
+    
+    /** Upper bound used when no window end is given (MySQL DATETIME maximum) */
+    public static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    
+    private final LocalDateTime from;
+    
+    private final LocalDateTime to;
+    
+    private final boolean descending;
+    
+    private final int size;
+    
+    private final KeysetCursor cursor;
+    
+    public KeysetPageRequest(LocalDateTime from, LocalDateTime to, boolean descending, int size, KeysetCursor cursor) {
+        this.from = from != null ? from : MIN_TIME;
+        this.to = to != null ? to : MAX_TIME;
+        this.descending = descending;
+        this.size = size;
+        this.cursor = cursor;
+    }
+    
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    public boolean isDescending() {
+        return descending;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public KeysetCursor getCursor() {
+        return cursor;
+    }
+    
+    /**
+     * Builds a page request from raw request parameters
+     * @param from Window start (ISO date-time, inclusive), may be null
+     * @param to Window end (ISO date-time, exclusive), may be null
+     * @param order "asc" or "desc"
+     * @param size Requested page size, may be null
+     * @param cursor Cursor of the previous page, may be null
+     * @param defaultSize Page size used when none is requested
+     * @param maxSize Largest page size allowed
+     * @return Page request
+     */
+    public static KeysetPageRequest of(String from, String to, String order, Integer size, String cursor,
+                                       int defaultSize, int maxSize) {
+        int pageSize = size != null ? Math.max(1, Math.min(size, maxSize)) : defaultSize;
+        return new KeysetPageRequest(
+                from != null ? LocalDateTime.parse(from) : null,
+                to != null ? LocalDateTime.parse(to) : null,
+                "desc".equalsIgnoreCase(order),
+                pageSize,
+                cursor != null ? KeysetCursor.decode(cursor) : null);
+    }
+    
+    /**
+     * Timestamp of the keyset boundary; the window edge on the first page
+     * @return Boundary timestamp
+     */
+    public LocalDateTime getBoundaryTime() {
+        if (cursor != null) {
+            return cursor.getTime();
+        }
+        return descending ? to : from;
+    }
+    
+    /**
+     * Id of the keyset boundary; on the first page the lowest id, so the window
+     * start is included when ascending and the window end is excluded when descending
+     * @return Boundary id
+     */
+    public Long getBoundaryId() {
+        return cursor != null ? cursor.getId() : Long.MIN_VALUE;
+    }
+}
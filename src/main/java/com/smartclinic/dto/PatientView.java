@@ -0,0 +1,62 @@
+package com.smartclinic.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only projection of a patient, without credentials
+ */
+public class PatientView {
+    
+    private final Long id;
+    
+    private final String firstName;
+    
+    private final String lastName;
+    
+    private final String email;
+    
+    private final String phoneNumber;
+    
+    private final LocalDate dateOfBirth;
+    
+    private final String address;
+    
+    public PatientView(Long id, String firstName, String lastName, String email, String phoneNumber,
+                       LocalDate dateOfBirth, String address) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.dateOfBirth = dateOfBirth;
+        this.address = address;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getFirstName() {
+        return firstName;
+    }
+    
+    public String getLastName() {
+        return lastName;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+    
+    public LocalDate getDateOfBirth() {
+        return dateOfBirth;
+    }
+    
+    public String getAddress() {
+        return address;
+    }
+}
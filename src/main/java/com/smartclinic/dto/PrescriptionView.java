@@ -0,0 +1,91 @@
+package com.smartclinic.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a prescription for listing endpoints
+ */
+public class PrescriptionView {
+    
+    private final Long id;
+    
+    private final String medicationName;
+    
+    private final String dosage;
+    
+    private final String instructions;
+    
+    private final LocalDateTime prescriptionDate;
+    
+    private final Long doctorId;
+    
+    private final String doctorFirstName;
+    
+    private final String doctorLastName;
+    
+    private final Long patientId;
+    
+    private final String patientFirstName;
+    
+    private final String patientLastName;
+    
+    public PrescriptionView(Long id, String medicationName, String dosage, String instructions, LocalDateTime prescriptionDate,
+                            Long doctorId, String doctorFirstName, String doctorLastName,
+                            Long patientId, String patientFirstName, String patientLastName) {
+        this.id = id;
+        this.medicationName = medicationName;
+        this.dosage = dosage;
+        this.instructions = instructions;
+        this.prescriptionDate = prescriptionDate;
+        this.doctorId = doctorId;
+        this.doctorFirstName = doctorFirstName;
+        this.doctorLastName = doctorLastName;
+        this.patientId = patientId;
+        this.patientFirstName = patientFirstName;
+        this.patientLastName = patientLastName;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getMedicationName() {
+        return medicationName;
+    }
+    
+    public String getDosage() {
+        return dosage;
+    }
+    
+    public String getInstructions() {
+        return instructions;
+    }
+    
+    public LocalDateTime getPrescriptionDate() {
+        return prescriptionDate;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public String getDoctorFirstName() {
+        return doctorFirstName;
+    }
+    
+    public String getDoctorLastName() {
+        return doctorLastName;
+    }
+    
+    public Long getPatientId() {
+        return patientId;
+    }
+    
+    public String getPatientFirstName() {
+        return patientFirstName;
+    }
+    
+    public String getPatientLastName() {
+        return patientLastName;
+    }
+}
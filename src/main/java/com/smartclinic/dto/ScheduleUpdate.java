@@ -0,0 +1,87 @@
+package com.smartclinic.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One change to a doctor's schedule, pushed to the doctor's open portals
+ */
+public class ScheduleUpdate {
+    
+    public static final String BOOKED = "BOOKED";
+    
+    public static final String UPDATED = "UPDATED";
+    
+    public static final String CANCELLED = "CANCELLED";
+    
+    public static final String DELETED = "DELETED";
+    
+    private final String type;
+    
+    private final Long appointmentId;
+    
+    private final LocalDateTime appointmentTime;
+    
+    private final String status;
+    
+    private final String notes;
+    
+    private final LocalDateTime previousTime;
+    
+    private final Long patientId;
+    
+    private final String patientFirstName;
+    
+    private final String patientLastName;
+    
+    public ScheduleUpdate(String type, Long appointmentId, LocalDateTime appointmentTime, String status, String notes,
+                          LocalDateTime previousTime, Long patientId, String patientFirstName, String patientLastName) {
+        this.type = type;
+        this.appointmentId = appointmentId;
+        this.appointmentTime = appointmentTime;
+        this.status = status;
+        this.notes = notes;
+        this.previousTime = previousTime;
+        this.patientId = patientId;
+        this.patientFirstName = patientFirstName;
+        this.patientLastName = patientLastName;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    // Null for a deletion
+    public LocalDateTime getAppointmentTime() {
+        return appointmentTime;
+    }
+    
+    // Null for a deletion
+    public String getStatus() {
+        return status;
+    }
+    
+    public String getNotes() {
+        return notes;
+    }
+    
+    // Null for a new booking
+    public LocalDateTime getPreviousTime() {
+        return previousTime;
+    }
+    
+    public Long getPatientId() {
+        return patientId;
+    }
+    
+    public String getPatientFirstName() {
+        return patientFirstName;
+    }
+    
+    public String getPatientLastName() {
+        return patientLastName;
+    }
+}
@@ -1,15 +1,22 @@
 package com.smartclinic.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_doctor_time", columnList = "doctor_id, appointment_time"),
+        @Index(name = "idx_appointments_patient_time", columnList = "patient_id, appointment_time")
+})
 public class Appointment {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence ids (a table on MySQL) let Hibernate batch inserts; see sql/id-sequences.sql
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+    @SequenceGenerator(name = "appointment_seq", sequenceName = "appointment_seq", allocationSize = 500)
     private Long id;
     
     @NotNull(message = "Appointment time is required")
@@ -32,6 +39,19 @@ public class Appointment {
     @NotNull(message = "Patient is required")
     private Patient patient;
     
+    // Checked on every update and delete, so a change based on a stale read fails instead of
+    // freeing a slot that was given away in the meantime
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long version;
+    
+    // Time and status as last read from or written to the database; the previous state of change events
+    @Transient
+    private LocalDateTime persistedTime;
+    
+    @Transient
+    private String persistedStatus;
+    
     // Constructors
     public Appointment() {}
     
@@ -89,4 +109,22 @@ public class Appointment {
     public void setPatient(Patient patient) {
         this.patient = patient;
     }
+    
+    @JsonIgnore
+    public LocalDateTime getPersistedTime() {
+        return persistedTime;
+    }
+    
+    @JsonIgnore
+    public String getPersistedStatus() {
+        return persistedStatus;
+    }
+    
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void recordPersistedState() {
+        persistedTime = appointmentTime;
+        persistedStatus = status;
+    }
 }
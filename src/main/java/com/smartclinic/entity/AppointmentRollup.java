@@ -0,0 +1,103 @@
+package com.smartclinic.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Number of appointments of one doctor on one day with one status, kept current by
+ * AppointmentReportService as appointments change. Rows with doctor id {@link #CLINIC_TOTAL}
+ * hold the same counts summed over all doctors.
+ */
+@Entity
+@Table(name = "appointment_daily_rollups", indexes = {
+        @Index(name = "idx_rollups_date", columnList = "rollup_date")
+})
+@IdClass(AppointmentRollup.Key.class)
+public class AppointmentRollup {
+    
+    // Ids are handed out from 1, so 0 never belongs to a real doctor
+    public static final long CLINIC_TOTAL = 0L;
+    
+    @Id
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Id
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate date;
+    
+    @Id
+    @Column(name = "status", nullable = false)
+    private String status;
+    
+    @Column(name = "appointment_count", nullable = false)
+    private long appointmentCount;
+    
+    // Getters
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public long getAppointmentCount() {
+        return appointmentCount;
+    }
+    
+    /**
+     * Primary key of a rollup row
+     */
+    public static class Key implements Serializable {
+        
+        private Long doctorId;
+        
+        private LocalDate date;
+        
+        private String status;
+        
+        public Key() {}
+        
+        public Key(Long doctorId, LocalDate date, String status) {
+            this.doctorId = doctorId;
+            this.date = date;
+            this.status = status;
+        }
+        
+        public Long getDoctorId() {
+            return doctorId;
+        }
+        
+        public LocalDate getDate() {
+            return date;
+        }
+        
+        public String getStatus() {
+            return status;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof Key == false) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(doctorId, other.doctorId) && Objects.equals(date, other.date) && Objects.equals(status, other.status);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(doctorId, date, status);
+        }
+    }
+}
@@ -1,5 +1,13 @@
 package com.smartclinic.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
@@ -8,11 +16,15 @@ import java.time.LocalTime;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctors")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "doctors")
 public class Doctor {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "doctor_seq")
+    @SequenceGenerator(name = "doctor_seq", sequenceName = "doctor_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "First name is required")
@@ -28,6 +40,8 @@ public class Doctor {
     @Column(name = "email", nullable = false, unique = true)
     private String email;
     
+    // Password hash; never written to responses
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @NotBlank(message = "Password is required")
     @Column(name = "password", nullable = false)
     private String password;
@@ -48,11 +62,15 @@ public class Doctor {
     @Column(name = "available_end_time", nullable = false)
     private LocalTime availableEndTime;
     
+    // Loaded for every doctor of the originating query in one subselect rather than once per doctor
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctorAvailableTimes")
     @CollectionTable(name = "doctor_available_times", joinColumns = @JoinColumn(name = "doctor_id"))
     @Column(name = "available_time")
     private List<LocalTime> availableTimes;
     
+    @JsonIgnore
     @OneToMany(mappedBy = "doctor", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Appointment> appointments;
     
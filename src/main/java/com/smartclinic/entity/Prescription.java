@@ -6,11 +6,15 @@ import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "prescriptions")
+@Table(name = "prescriptions", indexes = {
+        @Index(name = "idx_prescriptions_doctor_date", columnList = "doctor_id, prescription_date"),
+        @Index(name = "idx_prescriptions_patient_date", columnList = "patient_id, prescription_date")
+})
 public class Prescription {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prescription_seq")
+    @SequenceGenerator(name = "prescription_seq", sequenceName = "prescription_seq", allocationSize = 500)
     private Long id;
     
     @NotBlank(message = "Medication name is required")
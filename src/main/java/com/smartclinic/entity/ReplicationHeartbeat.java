@@ -0,0 +1,29 @@
+package com.smartclinic.entity;
+
+import javax.persistence.*;
+
+/**
+ * Single row that ReplicaLagMonitor rewrites on the primary every check interval; how old the
+ * copy on the replica is tells how far replication is behind. Mapped only so the table is
+ * created with the schema, and read and written with plain JDBC.
+ */
+@Entity
+@Table(name = "replication_heartbeat")
+public class ReplicationHeartbeat {
+    
+    @Id
+    @Column(name = "id")
+    private Integer id;
+    
+    @Column(name = "beat_millis", nullable = false)
+    private long beatMillis;
+    
+    // Getters
+    public Integer getId() {
+        return id;
+    }
+    
+    public long getBeatMillis() {
+        return beatMillis;
+    }
+}
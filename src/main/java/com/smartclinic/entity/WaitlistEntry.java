@@ -0,0 +1,104 @@
+package com.smartclinic.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A patient waiting for a doctor to have a free slot within a time window. WaitlistService
+ * books the first freed slot in the window for the longest-waiting patient.
+ */
+@Entity
+@Table(name = "waitlist_entries", indexes = {
+        @Index(name = "idx_waitlist_status_end", columnList = "status, window_end"),
+        @Index(name = "idx_waitlist_patient", columnList = "patient_id, created_at")
+})
+public class WaitlistEntry {
+    
+    public static final String WAITING = "WAITING";
+    
+    public static final String BOOKED = "BOOKED";
+    
+    public static final String LEFT = "LEFT";
+    
+    public static final String EXPIRED = "EXPIRED";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "waitlist_seq")
+    @SequenceGenerator(name = "waitlist_seq", sequenceName = "waitlist_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+    
+    @Column(name = "window_start", nullable = false)
+    private LocalDateTime windowStart;
+    
+    // Exclusive
+    @Column(name = "window_end", nullable = false)
+    private LocalDateTime windowEnd;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "status", nullable = false)
+    private String status = WAITING;
+    
+    // Set once a freed slot was booked for the patient
+    @Column(name = "appointment_id")
+    private Long appointmentId;
+    
+    // Constructors
+    public WaitlistEntry() {}
+    
+    public WaitlistEntry(Long doctorId, Long patientId, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        this.doctorId = doctorId;
+        this.patientId = patientId;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public Long getPatientId() {
+        return patientId;
+    }
+    
+    public LocalDateTime getWindowStart() {
+        return windowStart;
+    }
+    
+    public LocalDateTime getWindowEnd() {
+        return windowEnd;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+}
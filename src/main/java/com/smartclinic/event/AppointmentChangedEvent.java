@@ -0,0 +1,104 @@
+package com.smartclinic.event;
+
+import com.smartclinic.entity.Appointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by AppointmentService after an appointment was booked, changed or deleted.
+ * Carries the appointment's time and status before and after the change; the previous
+ * state is null for a new booking and the new state is null for a deletion.
+ */
+public class AppointmentChangedEvent {
+    
+    private final Long appointmentId;
+    
+    private final Long doctorId;
+    
+    private final Long patientId;
+    
+    private final LocalDateTime previousTime;
+    
+    private final String previousStatus;
+    
+    private final LocalDateTime time;
+    
+    private final String status;
+    
+    public AppointmentChangedEvent(Long appointmentId, Long doctorId, Long patientId,
+                                   LocalDateTime previousTime, String previousStatus,
+                                   LocalDateTime time, String status) {
+        this.appointmentId = appointmentId;
+        this.doctorId = doctorId;
+        this.patientId = patientId;
+        this.previousTime = previousTime;
+        this.previousStatus = previousStatus;
+        this.time = time;
+        this.status = status;
+    }
+    
+    /**
+     * @param appointment Appointment that was just written for the first time
+     * @return Event for a new booking
+     */
+    public static AppointmentChangedEvent booked(Appointment appointment) {
+        return new AppointmentChangedEvent(appointment.getId(), appointment.getDoctor().getId(), appointment.getPatient().getId(),
+                null, null, appointment.getAppointmentTime(), appointment.getStatus());
+    }
+    
+    /**
+     * @param appointment Appointment as it is now
+     * @param previousTime Time before the change
+     * @param previousStatus Status before the change
+     * @return Event for a changed appointment
+     */
+    public static AppointmentChangedEvent changed(Appointment appointment, LocalDateTime previousTime, String previousStatus) {
+        return new AppointmentChangedEvent(appointment.getId(), appointment.getDoctor().getId(), appointment.getPatient().getId(),
+                previousTime, previousStatus, appointment.getAppointmentTime(), appointment.getStatus());
+    }
+    
+    /**
+     * @param appointment Appointment that was just deleted
+     * @return Event for a deletion
+     */
+    public static AppointmentChangedEvent deleted(Appointment appointment) {
+        return new AppointmentChangedEvent(appointment.getId(), appointment.getDoctor().getId(), appointment.getPatient().getId(),
+                appointment.getAppointmentTime(), appointment.getStatus(), null, null);
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public Long getPatientId() {
+        return patientId;
+    }
+    
+    public LocalDateTime getPreviousTime() {
+        return previousTime;
+    }
+    
+    public String getPreviousStatus() {
+        return previousStatus;
+    }
+    
+    public LocalDateTime getTime() {
+        return time;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public boolean isCreated() {
+        return previousTime == null;
+    }
+    
+    public boolean isDeleted() {
+        return time == null;
+    }
+}
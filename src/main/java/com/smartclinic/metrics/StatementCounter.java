@@ -0,0 +1,66 @@
+package com.smartclinic.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hibernate statement inspector that counts the SQL statements prepared for a request.
+ * Each request gets one counter, which is bound to whichever thread works on the request:
+ * the request thread, and executor threads through {@link #taskDecorator()}.
+ * Statements on a thread with no counter bound are not counted.
+ */
+public class StatementCounter implements StatementInspector {
+    
+    /** Request attribute holding the request's counter */
+    public static final String REQUEST_ATTRIBUTE = StatementCounter.class.getName() + ".count";
+    
+    private static final ThreadLocal<AtomicInteger> BOUND = new ThreadLocal<>();
+    
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = BOUND.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+        return sql;
+    }
+    
+    /**
+     * Binds a counter to the current thread
+     * @param count Counter, or null to unbind
+     * @return Counter bound before, to be restored afterwards
+     */
+    public static AtomicInteger bind(AtomicInteger count) {
+        AtomicInteger previous = BOUND.get();
+        if (count == null) {
+            BOUND.remove();
+        } else {
+            BOUND.set(count);
+        }
+        return previous;
+    }
+    
+    /**
+     * Task decorator for executors that do a request's work: the task counts into the counter
+     * bound on the thread that submitted it
+     * @return Task decorator
+     */
+    public static TaskDecorator taskDecorator() {
+        return task -> {
+            AtomicInteger count = BOUND.get();
+            if (count == null) {
+                return task;
+            }
+            return () -> {
+                AtomicInteger previous = bind(count);
+                try {
+                    task.run();
+                } finally {
+                    bind(previous);
+                }
+            };
+        };
+    }
+}
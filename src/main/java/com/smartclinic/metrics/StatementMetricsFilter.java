@@ -0,0 +1,71 @@
+package com.smartclinic.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how many SQL statements each request issued, per endpoint, and logs
+ * requests above a threshold so N+1 query patterns show up immediately.
+ * An async request keeps its counter in a request attribute across dispatches, executors
+ * doing its work count into it through {@link StatementCounter#taskDecorator()}, and it is
+ * recorded when the last dispatch returns.
+ */
+public class StatementMetricsFilter extends OncePerRequestFilter {
+    
+    private static final Logger log = LoggerFactory.getLogger(StatementMetricsFilter.class);
+    
+    private final MeterRegistry meterRegistry;
+    
+    private final int warnThreshold;
+    
+    public StatementMetricsFilter(MeterRegistry meterRegistry, int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+    
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicInteger count = (AtomicInteger) request.getAttribute(StatementCounter.REQUEST_ATTRIBUTE);
+        if (count == null) {
+            count = new AtomicInteger();
+            request.setAttribute(StatementCounter.REQUEST_ATTRIBUTE, count);
+        }
+        AtomicInteger previous = StatementCounter.bind(count);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementCounter.bind(previous);
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            // An async request is recorded once, by the dispatch that completes it
+            if (pattern != null && isAsyncStarted(request) == false) {
+                int statements = count.get();
+                DistributionSummary.builder("clinic.request.statements")
+                        .baseUnit("statements")
+                        .tag("method", request.getMethod())
+                        .tag("uri", pattern.toString())
+                        .register(meterRegistry)
+                        .record(statements);
+                if (statements > warnThreshold) {
+                    log.warn("{} {} issued {} SQL statements", request.getMethod(), pattern, statements);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.smartclinic.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a latency timer for every public service method and every repository call.
+ * Timers are resolved once per (bean class, method) and cached, so the per-call cost
+ * is two map lookups and a clock read on each side of the call.
+ */
+@Aspect
+@Component
+public class TimingAspect {
+    
+    private static final String REPOSITORY_PACKAGE = "com.smartclinic.repository";
+    
+    // Looked up lazily: advisors are created while the registry itself is being proxied
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, Timer>> timers = new ConcurrentHashMap<>();
+    
+    @Around("execution(public * com.smartclinic.service..*(..)) && @within(org.springframework.stereotype.Service)"
+            + " && !execution(* bindTo(io.micrometer.core.instrument.MeterRegistry))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "clinic.service", joinPoint.getTarget().getClass());
+    }
+    
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "clinic.repository", joinPoint.getThis().getClass());
+    }
+    
+    private Object time(ProceedingJoinPoint joinPoint, String name, Class<?> beanClass) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer timer = timers.computeIfAbsent(beanClass, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> Timer.builder(name)
+                        .tag("class", className(name, beanClass))
+                        .tag("method", m.getName())
+                        .register(meterRegistry.getObject()));
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private static String className(String name, Class<?> beanClass) {
+        if ("clinic.repository".equals(name)) {
+            // Repository beans are JDK proxies; name them after the application interface
+            for (Class<?> type : beanClass.getInterfaces()) {
+                if (type.getName().startsWith(REPOSITORY_PACKAGE)) {
+                    return type.getSimpleName();
+                }
+            }
+        }
+        return beanClass.getSimpleName();
+    }
+}
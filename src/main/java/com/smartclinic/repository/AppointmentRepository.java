@@ -1,32 +1,100 @@
 package com.smartclinic.repository;
 
+import com.smartclinic.dto.AppointmentView;
 import com.smartclinic.entity.Appointment;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.entity.Patient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
     
+    String VIEW_SELECT = "SELECT new com.smartclinic.dto.AppointmentView(a.id, a.appointmentTime, a.status, a.notes, "
+            + "d.id, d.firstName, d.lastName, d.specialty, p.id, p.firstName, p.lastName) "
+            + "FROM Appointment a JOIN a.doctor d JOIN a.patient p ";
+    
+    String WINDOW = "a.appointmentTime >= :from AND a.appointmentTime < :to ";
+    
+    String AFTER = "AND (a.appointmentTime > :time OR (a.appointmentTime = :time AND a.id > :id)) "
+            + "ORDER BY a.appointmentTime ASC, a.id ASC";
+    
+    String BEFORE = "AND (a.appointmentTime < :time OR (a.appointmentTime = :time AND a.id < :id)) "
+            + "ORDER BY a.appointmentTime DESC, a.id DESC";
+    
+    // Entity listings fetch doctor and patient in the same statement, so serializing N rows costs no extra queries
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     List<Appointment> findByDoctor(Doctor doctor);
     
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     List<Appointment> findByPatient(Patient patient);
     
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     List<Appointment> findByDoctorAndAppointmentTimeBetween(Doctor doctor, LocalDateTime start, LocalDateTime end);
     
-    @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor AND DATE(a.appointmentTime) = :date")
-    List<Appointment> findByDoctorAndDate(@Param("doctor") Doctor doctor, @Param("date") LocalDate date);
+    // Half-open range on the raw column so the (doctor_id, appointment_time) index can be range-scanned
+    @EntityGraph(attributePaths = {"doctor", "patient"})
+    @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor AND a.appointmentTime >= :dayStart AND a.appointmentTime < :dayEnd")
+    List<Appointment> findByDoctorAndDay(@Param("doctor") Doctor doctor, @Param("dayStart") LocalDateTime dayStart, @Param("dayEnd") LocalDateTime dayEnd);
     
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     @Query("SELECT a FROM Appointment a WHERE a.patient = :patient AND a.appointmentTime >= :startDate")
     List<Appointment> findByPatientAndAppointmentTimeAfter(@Param("patient") Patient patient, @Param("startDate") LocalDateTime startDate);
     
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor AND a.appointmentTime = :appointmentTime")
     List<Appointment> findByDoctorAndAppointmentTime(@Param("doctor") Doctor doctor, @Param("appointmentTime") LocalDateTime appointmentTime);
+    
+    @Query("SELECT a.appointmentTime FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentTime >= :start AND a.appointmentTime < :end AND a.status <> 'CANCELLED'")
+    List<LocalDateTime> findBookedTimesForDoctor(@Param("doctorId") Long doctorId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    @Query("SELECT a.doctor.id, a.appointmentTime FROM Appointment a WHERE a.doctor.id IN :doctorIds AND a.appointmentTime >= :start AND a.appointmentTime < :end AND a.status <> 'CANCELLED'")
+    List<Object[]> findBookedTimesForDoctors(@Param("doctorIds") Collection<Long> doctorIds, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    // Keyset pages of appointment projections; :time/:id is the last row of the previous page
+    @Query(VIEW_SELECT + "WHERE a.doctor.id = :doctorId AND " + WINDOW + AFTER)
+    List<AppointmentView> findViewsByDoctorAfter(@Param("doctorId") Long doctorId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                 @Param("time") LocalDateTime time, @Param("id") Long id, Pageable limit);
+    
+    @Query(VIEW_SELECT + "WHERE a.doctor.id = :doctorId AND " + WINDOW + BEFORE)
+    List<AppointmentView> findViewsByDoctorBefore(@Param("doctorId") Long doctorId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                  @Param("time") LocalDateTime time, @Param("id") Long id, Pageable limit);
+    
+    @Query(VIEW_SELECT + "WHERE a.patient.id = :patientId AND " + WINDOW + AFTER)
+    List<AppointmentView> findViewsByPatientAfter(@Param("patientId") Long patientId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                  @Param("time") LocalDateTime time, @Param("id") Long id, Pageable limit);
+    
+    @Query(VIEW_SELECT + "WHERE a.patient.id = :patientId AND " + WINDOW + BEFORE)
+    List<AppointmentView> findViewsByPatientBefore(@Param("patientId") Long patientId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                   @Param("time") LocalDateTime time, @Param("id") Long id, Pageable limit);
+    
+    // Forward-only stream for exports; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(VIEW_SELECT + "ORDER BY a.id")
+    Stream<AppointmentView> streamAllViews();
+    
+    // Doctor id, appointment time and patient id of every appointment; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("SELECT a.doctor.id, a.appointmentTime, a.patient.id FROM Appointment a")
+    Stream<Object[]> streamPatientVisits();
 }
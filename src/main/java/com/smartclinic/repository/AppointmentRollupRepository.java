@@ -0,0 +1,43 @@
+package com.smartclinic.repository;
+
+import com.smartclinic.entity.AppointmentRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Updates must run inside a transaction; AppointmentReportService opens one around them
+@Repository
+public interface AppointmentRollupRepository extends JpaRepository<AppointmentRollup, AppointmentRollup.Key> {
+    
+    // Single-statement upsert, so concurrent changes to the same doctor and day never lose a count
+    @Modifying
+    @Query(value = "INSERT INTO appointment_daily_rollups (doctor_id, rollup_date, status, appointment_count) "
+            + "VALUES (:doctorId, :date, :status, :delta) "
+            + "ON DUPLICATE KEY UPDATE appointment_count = appointment_count + :delta", nativeQuery = true)
+    int addToCount(@Param("doctorId") Long doctorId, @Param("date") LocalDate date, @Param("status") String status, @Param("delta") long delta);
+    
+    @Query("SELECT r FROM AppointmentRollup r WHERE r.doctorId = :doctorId AND r.date >= :from AND r.date < :to "
+            + "AND r.appointmentCount <> 0 ORDER BY r.date, r.status")
+    List<AppointmentRollup> findCounts(@Param("doctorId") Long doctorId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Modifying
+    @Query(value = "DELETE FROM appointment_daily_rollups", nativeQuery = true)
+    int deleteAllRows();
+    
+    @Modifying
+    @Query(value = "INSERT INTO appointment_daily_rollups (doctor_id, rollup_date, status, appointment_count) "
+            + "SELECT doctor_id, CAST(appointment_time AS DATE), status, COUNT(*) FROM appointments "
+            + "GROUP BY doctor_id, CAST(appointment_time AS DATE), status", nativeQuery = true)
+    int insertDoctorCounts();
+    
+    @Modifying
+    @Query(value = "INSERT INTO appointment_daily_rollups (doctor_id, rollup_date, status, appointment_count) "
+            + "SELECT " + AppointmentRollup.CLINIC_TOTAL + ", CAST(appointment_time AS DATE), status, COUNT(*) FROM appointments "
+            + "GROUP BY CAST(appointment_time AS DATE), status", nativeQuery = true)
+    int insertClinicCounts();
+}
@@ -1,26 +1,63 @@
 package com.smartclinic.repository;
 
 import com.smartclinic.entity.Doctor;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     
     Optional<Doctor> findByEmail(String email);
     
+    @EntityGraph(attributePaths = "availableTimes")
+    Optional<Doctor> findWithAvailableTimesByEmail(String email);
+    
+    @EntityGraph(attributePaths = "availableTimes")
+    Optional<Doctor> findWithAvailableTimesById(Long id);
+    
+    // Served from the doctorQueries region; Hibernate invalidates it on any write to doctors
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "doctorQueries")
+    })
     List<Doctor> findBySpecialty(String specialty);
     
+    @Override
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "doctorQueries")
+    })
+    List<Doctor> findAll();
+    
     @Query("SELECT d FROM Doctor d WHERE d.specialty = :specialty AND d.availableStartTime <= :time AND d.availableEndTime >= :time")
-    List<Doctor> findBySpecialtyAndAvailableTime(@Param("specialty") String specialty, @Param("time") String time);
+    List<Doctor> findBySpecialtyAndAvailableTime(@Param("specialty") String specialty, @Param("time") LocalTime time);
     
-    @Query("SELECT d FROM Doctor d WHERE d.firstName LIKE %:name% OR d.lastName LIKE %:name%")
-    List<Doctor> findByNameContaining(@Param("name") String name);
+    @EntityGraph(attributePaths = "availableTimes")
+    List<Doctor> findWithAvailableTimesByIdIn(Collection<Long> ids);
+    
+    // (id, firstName, lastName, specialty, availableStartTime, availableEndTime) of every doctor, for building the search index
+    @Query("SELECT d.id, d.firstName, d.lastName, d.specialty, d.availableStartTime, d.availableEndTime FROM Doctor d")
+    List<Object[]> findAllSearchFields();
     
     boolean existsByEmail(String email);
+    
+    @Query("SELECT d.id FROM Doctor d WHERE d.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+    
+    // (email, id) of every doctor, for resolving references in bulk imports
+    @Query("SELECT d.email, d.id FROM Doctor d")
+    List<Object[]> findAllEmailsAndIds();
 }
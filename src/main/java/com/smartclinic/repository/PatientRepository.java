@@ -1,12 +1,20 @@
 package com.smartclinic.repository;
 
+import com.smartclinic.dto.PatientView;
 import com.smartclinic.entity.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
@@ -23,4 +31,20 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     
     // Method to check if patient exists by phone number
     boolean existsByPhoneNumber(String phoneNumber);
+    
+    // Method to retrieve only the patient id by email, for identity resolution
+    @Query("SELECT p.id FROM Patient p WHERE p.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+    
+    // Method to retrieve (email, id) of every patient, for resolving references in bulk imports
+    @Query("SELECT p.email, p.id FROM Patient p")
+    List<Object[]> findAllEmailsAndIds();
+    
+    // Forward-only stream for exports; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("SELECT new com.smartclinic.dto.PatientView(p.id, p.firstName, p.lastName, p.email, p.phoneNumber, p.dateOfBirth, p.address) FROM Patient p ORDER BY p.id")
+    Stream<PatientView> streamAllViews();
 }
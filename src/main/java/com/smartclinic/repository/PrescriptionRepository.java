@@ -1,25 +1,64 @@
 package com.smartclinic.repository;
 
+import com.smartclinic.dto.PrescriptionView;
 import com.smartclinic.entity.Prescription;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.entity.Patient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
     
+    String VIEW_SELECT = "SELECT new com.smartclinic.dto.PrescriptionView(p.id, p.medicationName, p.dosage, p.instructions, p.prescriptionDate, "
+            + "d.id, d.firstName, d.lastName, pt.id, pt.firstName, pt.lastName) "
+            + "FROM Prescription p JOIN p.doctor d JOIN p.patient pt ";
+    
+    String WINDOW = "p.prescriptionDate >= :from AND p.prescriptionDate < :to ";
+    
+    // Entity listings fetch doctor and patient in the same statement, so serializing N rows costs no extra queries
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     List<Prescription> findByDoctor(Doctor doctor);
     
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     List<Prescription> findByPatient(Patient patient);
     
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     List<Prescription> findByDoctorAndPatient(Doctor doctor, Patient patient);
     
+    @EntityGraph(attributePaths = {"doctor", "patient"})
     @Query("SELECT p FROM Prescription p WHERE p.patient = :patient AND p.prescriptionDate >= :startDate")
     List<Prescription> findByPatientAndPrescriptionDateAfter(@Param("patient") Patient patient, @Param("startDate") LocalDateTime startDate);
+    
+    // Keyset pages of prescription projections; :time/:id is the last row of the previous page
+    @Query(VIEW_SELECT + "WHERE p.doctor.id = :doctorId AND " + WINDOW
+            + "AND (p.prescriptionDate > :time OR (p.prescriptionDate = :time AND p.id > :id)) ORDER BY p.prescriptionDate ASC, p.id ASC")
+    List<PrescriptionView> findViewsByDoctorAfter(@Param("doctorId") Long doctorId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                  @Param("time") LocalDateTime time, @Param("id") Long id, Pageable limit);
+    
+    @Query(VIEW_SELECT + "WHERE p.doctor.id = :doctorId AND " + WINDOW
+            + "AND (p.prescriptionDate < :time OR (p.prescriptionDate = :time AND p.id < :id)) ORDER BY p.prescriptionDate DESC, p.id DESC")
+    List<PrescriptionView> findViewsByDoctorBefore(@Param("doctorId") Long doctorId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                   @Param("time") LocalDateTime time, @Param("id") Long id, Pageable limit);
+    
+    // Forward-only stream for exports; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(VIEW_SELECT + "ORDER BY p.id")
+    Stream<PrescriptionView> streamAllViews();
 }
@@ -0,0 +1,101 @@
+package com.smartclinic.repository;
+
+import com.smartclinic.dto.AppointmentView;
+import com.smartclinic.entity.Doctor;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Read-only queries of the reactive read API, over R2DBC. Results are streamed row by row,
+ * so a slow consumer holds back the query instead of buffering it.
+ */
+public class ReactiveReadRepository {
+    
+    private static final String DOCTOR_COLUMNS =
+            "SELECT id, first_name, last_name, email, specialty, phone_number, available_start_time, available_end_time FROM doctors";
+    
+    private static final String APPOINTMENT_COLUMNS =
+            "SELECT a.id, a.appointment_time, a.status, a.notes, "
+            + "d.id AS doctor_id, d.first_name AS doctor_first_name, d.last_name AS doctor_last_name, d.specialty AS doctor_specialty, "
+            + "p.id AS patient_id, p.first_name AS patient_first_name, p.last_name AS patient_last_name "
+            + "FROM appointments a JOIN doctors d ON d.id = a.doctor_id JOIN patients p ON p.id = a.patient_id";
+    
+    private final DatabaseClient databaseClient;
+    
+    public ReactiveReadRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+    
+    /**
+     * Streams doctors in id order
+     * @param specialty Specialty to filter on, or null for all doctors
+     * @return Doctors, without their password or appointments
+     */
+    public Flux<Doctor> findDoctors(String specialty) {
+        DatabaseClient.GenericExecuteSpec spec = specialty == null
+                ? databaseClient.sql(DOCTOR_COLUMNS + " ORDER BY id")
+                : databaseClient.sql(DOCTOR_COLUMNS + " WHERE specialty = :specialty ORDER BY id").bind("specialty", specialty);
+        return spec.map((row, metadata) -> toDoctor(row)).all();
+    }
+    
+    /**
+     * Streams a patient's appointments, most recent first
+     * @param patientId Patient ID
+     * @return Appointment projections
+     */
+    public Flux<AppointmentView> findAppointmentsForPatient(Long patientId) {
+        return databaseClient.sql(APPOINTMENT_COLUMNS + " WHERE a.patient_id = :patientId ORDER BY a.appointment_time DESC, a.id DESC")
+                .bind("patientId", patientId)
+                .map((row, metadata) -> toAppointmentView(row))
+                .all();
+    }
+    
+    /**
+     * Streams a doctor's appointments on one day, in time order
+     * @param doctorId Doctor ID
+     * @param date Day
+     * @return Appointment projections
+     */
+    public Flux<AppointmentView> findAppointmentsForDoctorOnDate(Long doctorId, LocalDate date) {
+        return databaseClient.sql(APPOINTMENT_COLUMNS + " WHERE a.doctor_id = :doctorId"
+                        + " AND a.appointment_time >= :from AND a.appointment_time < :to ORDER BY a.appointment_time, a.id")
+                .bind("doctorId", doctorId)
+                .bind("from", date.atStartOfDay())
+                .bind("to", date.plusDays(1).atStartOfDay())
+                .map((row, metadata) -> toAppointmentView(row))
+                .all();
+    }
+    
+    private static Doctor toDoctor(Row row) {
+        Doctor doctor = new Doctor();
+        doctor.setId(row.get("id", Long.class));
+        doctor.setFirstName(row.get("first_name", String.class));
+        doctor.setLastName(row.get("last_name", String.class));
+        doctor.setEmail(row.get("email", String.class));
+        doctor.setSpecialty(row.get("specialty", String.class));
+        doctor.setPhoneNumber(row.get("phone_number", String.class));
+        doctor.setAvailableStartTime(row.get("available_start_time", LocalTime.class));
+        doctor.setAvailableEndTime(row.get("available_end_time", LocalTime.class));
+        return doctor;
+    }
+    
+    private static AppointmentView toAppointmentView(Row row) {
+        return new AppointmentView(
+                row.get("id", Long.class),
+                row.get("appointment_time", LocalDateTime.class),
+                row.get("status", String.class),
+                row.get("notes", String.class),
+                row.get("doctor_id", Long.class),
+                row.get("doctor_first_name", String.class),
+                row.get("doctor_last_name", String.class),
+                row.get("doctor_specialty", String.class),
+                row.get("patient_id", Long.class),
+                row.get("patient_first_name", String.class),
+                row.get("patient_last_name", String.class));
+    }
+}
@@ -0,0 +1,30 @@
+package com.smartclinic.repository;
+
+import com.smartclinic.entity.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+    
+    List<WaitlistEntry> findByStatusAndWindowEndAfter(String status, LocalDateTime time);
+    
+    List<WaitlistEntry> findByPatientIdOrderByCreatedAtDesc(Long patientId);
+    
+    long countByPatientIdAndStatus(Long patientId, String status);
+    
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.status = :status WHERE w.id = :id AND w.status = '" + WaitlistEntry.WAITING + "'")
+    int updateWaitingStatus(@Param("id") Long id, @Param("status") String status);
+    
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.status = '" + WaitlistEntry.EXPIRED + "' "
+            + "WHERE w.status = '" + WaitlistEntry.WAITING + "' AND w.windowEnd <= :now")
+    int expireEnded(@Param("now") LocalDateTime now);
+}
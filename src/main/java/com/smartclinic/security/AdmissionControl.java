@@ -0,0 +1,341 @@
+package com.smartclinic.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for the REST API. Requests are sorted into booking, prescription-write,
+ * listing and admin classes, each with its own bulkhead, so a booking surge can only use the
+ * booking permits and leaves threads and connections for the others. Each class can also be
+ * rate-limited as a whole and per caller with token buckets. Logins and registrations are not
+ * classified; LoginGate bounds logins. Work a handler hands to another thread, such as a
+ * streamed export, is not held in the bulkhead once the request thread returns.
+ * At startup the bulkheads and the worker pools that use the database are checked against
+ * the connection pool, so that every thread holding a permit can also get a connection.
+ */
+@Component
+public class AdmissionControl implements MeterBinder {
+    
+    /**
+     * Request classes, with their default limits
+     */
+    public enum RequestClass {
+        BOOKING(4, 50, 100, 1, 5),
+        PRESCRIPTION(2, 20, 0, 0, 0),
+        LISTING(8, 100, 0, 10, 20),
+        ADMIN(2, 10, 0, 0, 0);
+        
+        private final int maxConcurrent;
+        
+        private final int queueSize;
+        
+        private final double rate;
+        
+        private final double callerRate;
+        
+        private final double callerBurst;
+        
+        RequestClass(int maxConcurrent, int queueSize, double rate, double callerRate, double callerBurst) {
+            this.maxConcurrent = maxConcurrent;
+            this.queueSize = queueSize;
+            this.rate = rate;
+            this.callerRate = callerRate;
+            this.callerBurst = callerBurst;
+        }
+        
+        String propertyPrefix() {
+            return "clinic.admission." + name().toLowerCase() + ".";
+        }
+    }
+    
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+    
+    @Autowired
+    private Environment environment;
+    
+    @Value("${clinic.admission.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${clinic.admission.max-wait:500ms}")
+    private Duration maxWait;
+    
+    @Value("${clinic.admission.busy-retry-after:1s}")
+    private Duration busyRetryAfter;
+    
+    @Value("${clinic.admission.tracked-callers:100000}")
+    private long trackedCallers;
+    
+    private final Map<RequestClass, Limits> limits = new EnumMap<>(RequestClass.class);
+    
+    private Cache<String, TokenBucket> callerBuckets;
+    
+    @PostConstruct
+    void init() {
+        for (RequestClass requestClass : RequestClass.values()) {
+            String prefix = requestClass.propertyPrefix();
+            limits.put(requestClass, new Limits(
+                    environment.getProperty(prefix + "max-concurrent", Integer.class, requestClass.maxConcurrent),
+                    environment.getProperty(prefix + "queue-size", Integer.class, requestClass.queueSize),
+                    environment.getProperty(prefix + "rate", Double.class, requestClass.rate),
+                    environment.getProperty(prefix + "caller-rate", Double.class, requestClass.callerRate),
+                    environment.getProperty(prefix + "caller-burst", Double.class, requestClass.callerBurst),
+                    maxWait.toNanos()));
+        }
+        // A caller idle for a minute has refilled any bucket, so dropping it changes nothing
+        callerBuckets = Caffeine.newBuilder()
+                .maximumSize(trackedCallers)
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build();
+        if (enabled) {
+            checkConnectionBudget();
+        }
+    }
+    
+    /**
+     * Warns when the request classes and the worker pools together can want more connections
+     * than the pool has. Threads that change appointments hold a second connection for a moment,
+     * while the report rollups are written after their own transaction committed
+     */
+    private void checkConnectionBudget() {
+        int booking = limits.get(RequestClass.BOOKING).bulkhead.maxConcurrent();
+        int persist = environment.getProperty("clinic.booking.persist-threads", Integer.class, 2);
+        int fill = environment.getProperty("clinic.waitlist.fill-threads", Integer.class, 1);
+        int writers = booking + persist + fill;
+        int readers = limits.get(RequestClass.PRESCRIPTION).bulkhead.maxConcurrent()
+                + limits.get(RequestClass.LISTING).bulkhead.maxConcurrent()
+                + limits.get(RequestClass.ADMIN).bulkhead.maxConcurrent()
+                + environment.getProperty("clinic.login.threads", Integer.class, 2)
+                + environment.getProperty("clinic.import.max-concurrent", Integer.class, 2)
+                // The replica lag monitor writes its heartbeat to the primary
+                + (environment.containsProperty("clinic.datasource.replica.jdbc-url") ? 1 : 0);
+        int needed = 2 * writers + readers;
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        if (needed > poolSize) {
+            log.warn("Admission limits and worker pools can use {} database connections, but the pool has {}; "
+                    + "requests may wait for a connection instead of being turned away", needed, poolSize);
+        }
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limits.forEach((requestClass, classLimits) -> {
+            String name = requestClass.name().toLowerCase();
+            Gauge.builder("clinic.admission.active", classLimits.bulkhead, Bulkhead::active)
+                    .tag("class", name)
+                    .register(registry);
+            Gauge.builder("clinic.admission.queued", classLimits.bulkhead, Bulkhead::queued)
+                    .tag("class", name)
+                    .register(registry);
+            FunctionCounter.builder("clinic.admission.rejected", classLimits.rateRejections, AtomicLong::get)
+                    .tag("class", name)
+                    .tag("reason", "rate")
+                    .register(registry);
+            FunctionCounter.builder("clinic.admission.rejected", classLimits.busyRejections, AtomicLong::get)
+                    .tag("class", name)
+                    .tag("reason", "busy")
+                    .register(registry);
+        });
+    }
+    
+    /**
+     * Admits a request, waiting briefly for a bulkhead permit if needed
+     * @param request HTTP request
+     * @param caller Authenticated caller, or null
+     * @return Admission, to be released when the request completes
+     */
+    public Admission admit(HttpServletRequest request, ClinicPrincipal caller) {
+        RequestClass requestClass = enabled ? classify(request) : null;
+        if (requestClass == null) {
+            return Admission.UNLIMITED;
+        }
+        return admit(requestClass, callerKey(request.getRemoteAddr(), caller), true, true);
+    }
+    
+    /**
+     * Admits a request of the reactive read API without waiting, as its event-loop threads must not block
+     * @param requestClass Request class
+     * @param remoteAddress Caller's address
+     * @param caller Authenticated caller, or null
+     * @param holdPermit false for event streams, which stay open indefinitely and are only rate-limited
+     * @return Admission, to be released when the response completes
+     */
+    public Admission admitNow(RequestClass requestClass, String remoteAddress, ClinicPrincipal caller, boolean holdPermit) {
+        if (enabled == false) {
+            return Admission.UNLIMITED;
+        }
+        return admit(requestClass, callerKey(remoteAddress, caller), false, holdPermit);
+    }
+    
+    private Admission admit(RequestClass requestClass, String callerKey, boolean waitForPermit, boolean holdPermit) {
+        Limits classLimits = limits.get(requestClass);
+        
+        TokenBucket callerBucket = null;
+        if (classLimits.callerRate > 0) {
+            callerBucket = callerBuckets.get(requestClass + ":" + callerKey,
+                    key -> new TokenBucket(classLimits.callerRate, classLimits.callerBurst));
+            long wait = callerBucket.tryTake();
+            if (wait > 0) {
+                classLimits.rateRejections.incrementAndGet();
+                return Admission.rejected(wait, "Too many requests, please slow down");
+            }
+        }
+        if (classLimits.rate != null) {
+            long wait = classLimits.rate.tryTake();
+            if (wait > 0) {
+                refund(callerBucket);
+                classLimits.rateRejections.incrementAndGet();
+                return Admission.rejected(wait, "The service is busy, please try again shortly");
+            }
+        }
+        if (holdPermit == false) {
+            return Admission.UNLIMITED;
+        }
+        boolean entered = waitForPermit ? classLimits.bulkhead.tryEnter() : classLimits.bulkhead.tryEnterNow();
+        if (entered == false) {
+            // A request turned away for lack of capacity does not count against the rate limits
+            refund(callerBucket);
+            refund(classLimits.rate);
+            classLimits.busyRejections.incrementAndGet();
+            return Admission.rejected(busyRetryAfter.toNanos(), "The service is busy, please try again shortly");
+        }
+        return new Admission(classLimits.bulkhead, 0, null);
+    }
+    
+    /**
+     * Sorts a request into its class
+     * @param request HTTP request
+     * @return Request class, or null for requests that are not admission-controlled
+     */
+    RequestClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if (path.startsWith("/api/") == false || path.endsWith("/login") || path.endsWith("/register")) {
+            return null;
+        }
+        if (path.startsWith("/api/admin/")) {
+            return RequestClass.ADMIN;
+        }
+        if ("GET".equals(method)) {
+            return RequestClass.LISTING;
+        }
+        if (path.startsWith("/api/appointments") || path.startsWith("/api/waitlist")) {
+            return RequestClass.BOOKING;
+        }
+        if (path.startsWith("/api/prescriptions")) {
+            return RequestClass.PRESCRIPTION;
+        }
+        return null;
+    }
+    
+    private static void refund(TokenBucket bucket) {
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+    
+    private static String callerKey(String remoteAddress, ClinicPrincipal caller) {
+        if (caller == null) {
+            return "ip:" + remoteAddress;
+        }
+        if (caller.isPatient()) {
+            return "patient:" + caller.getPatientId();
+        }
+        if (caller.isDoctor()) {
+            return "doctor:" + caller.getDoctorId();
+        }
+        return "user:" + caller.getEmail();
+    }
+    
+    /**
+     * Outcome of {@link #admit}
+     */
+    public static final class Admission {
+        
+        static final Admission UNLIMITED = new Admission(null, 0, null);
+        
+        private final Bulkhead bulkhead;
+        
+        private final long retryAfterNanos;
+        
+        private final String message;
+        
+        private Admission(Bulkhead bulkhead, long retryAfterNanos, String message) {
+            this.bulkhead = bulkhead;
+            this.retryAfterNanos = retryAfterNanos;
+            this.message = message;
+        }
+        
+        static Admission rejected(long retryAfterNanos, String message) {
+            return new Admission(null, retryAfterNanos, message);
+        }
+        
+        public boolean isAdmitted() {
+            return message == null;
+        }
+        
+        /**
+         * @return Whole seconds to wait before retrying, at least 1 for a rejected request
+         */
+        public long getRetryAfterSeconds() {
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999L));
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        /**
+         * Gives the bulkhead permit back; does nothing for rejected or unlimited requests
+         */
+        public void release() {
+            if (bulkhead != null) {
+                bulkhead.exit();
+            }
+        }
+    }
+    
+    /**
+     * Limits of one request class
+     */
+    private static final class Limits {
+        
+        private final Bulkhead bulkhead;
+        
+        // Null when the class has no overall rate limit
+        private final TokenBucket rate;
+        
+        private final double callerRate;
+        
+        private final double callerBurst;
+        
+        private final AtomicLong rateRejections = new AtomicLong();
+        
+        private final AtomicLong busyRejections = new AtomicLong();
+        
+        Limits(int maxConcurrent, int queueSize, double rate, double callerRate, double callerBurst, long maxWaitNanos) {
+            this.bulkhead = new Bulkhead(maxConcurrent, queueSize, maxWaitNanos);
+            // One second's worth of requests may arrive at once
+            this.rate = rate > 0 ? new TokenBucket(rate, rate) : null;
+            this.callerRate = callerRate;
+            this.callerBurst = callerBurst;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.smartclinic.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs each request past {@link AdmissionControl} once the caller is known, answering
+ * rejected requests with 429 and Retry-After before they reach a handler.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    
+    private final AdmissionControl admissionControl;
+    
+    private final ObjectMapper objectMapper;
+    
+    public AdmissionControlFilter(AdmissionControl admissionControl, ObjectMapper objectMapper) {
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        ClinicPrincipal caller = authentication != null && authentication.getPrincipal() instanceof ClinicPrincipal
+                ? (ClinicPrincipal) authentication.getPrincipal() : null;
+        
+        AdmissionControl.Admission admission = admissionControl.admit(request, caller);
+        if (admission.isAdmitted() == false) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("success", false);
+            body.put("message", admission.getMessage());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), body);
+            return;
+        }
+        
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            admission.release();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.smartclinic.security;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of requests of one kind in progress. A request that finds every permit
+ * taken waits a short while in a bounded queue; when the queue is full it is turned away at once.
+ */
+final class Bulkhead {
+    
+    private final int maxConcurrent;
+    
+    private final int maxQueued;
+    
+    private final long maxWaitNanos;
+    
+    private final Semaphore permits;
+    
+    private final AtomicInteger queued = new AtomicInteger();
+    
+    Bulkhead(int maxConcurrent, int maxQueued, long maxWaitNanos) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = maxWaitNanos;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+    
+    /**
+     * Takes a permit, waiting for one if the queue has room
+     * @return true if a permit was taken and must be given back with {@link #exit()}
+     */
+    boolean tryEnter() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Takes a permit only if one is free right now
+     * @return true if a permit was taken and must be given back with {@link #exit()}
+     */
+    boolean tryEnterNow() {
+        return permits.tryAcquire();
+    }
+    
+    void exit() {
+        permits.release();
+    }
+    
+    int maxConcurrent() {
+        return maxConcurrent;
+    }
+    
+    int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+    
+    int queued() {
+        return queued.get();
+    }
+}
@@ -0,0 +1,49 @@
+package com.smartclinic.security;
+
+import java.io.Serializable;
+
+/**
+ * Lightweight identity of an authenticated caller, resolved from the JWT subject.
+ * An email may belong to a doctor, a patient, both, or the administrator.
+ */
+public class ClinicPrincipal implements Serializable {
+    
+    private final String email;
+    
+    private final boolean admin;
+    
+    private final Long doctorId;
+    
+    private final Long patientId;
+    
+    public ClinicPrincipal(String email, boolean admin, Long doctorId, Long patientId) {
+        this.email = email;
+        this.admin = admin;
+        this.doctorId = doctorId;
+        this.patientId = patientId;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public boolean isAdmin() {
+        return admin;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public Long getPatientId() {
+        return patientId;
+    }
+    
+    public boolean isDoctor() {
+        return doctorId != null;
+    }
+    
+    public boolean isPatient() {
+        return patientId != null;
+    }
+}
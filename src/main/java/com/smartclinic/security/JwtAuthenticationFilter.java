@@ -0,0 +1,64 @@
+package com.smartclinic.security;
+
+import com.smartclinic.service.TokenService;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates the bearer token once per request and exposes the caller as a {@link ClinicPrincipal}.
+ * Requests without a valid token continue unauthenticated; handlers decide how to respond.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    private final TokenService tokenService;
+    
+    private final PrincipalResolver principalResolver;
+    
+    public JwtAuthenticationFilter(TokenService tokenService, PrincipalResolver principalResolver) {
+        this.tokenService = tokenService;
+        this.principalResolver = principalResolver;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if (header != null) {
+            String email = tokenService.validateToken(header.replace(BEARER_PREFIX, ""));
+            if (email != null) {
+                ClinicPrincipal principal = principalResolver.resolve(email);
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(principal, null, authoritiesOf(principal));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    private static List<GrantedAuthority> authoritiesOf(ClinicPrincipal principal) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (principal.isAdmin()) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
+        if (principal.isDoctor()) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_DOCTOR"));
+        }
+        if (principal.isPatient()) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_PATIENT"));
+        }
+        return authorities;
+    }
+}
@@ -0,0 +1,214 @@
+package com.smartclinic.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for logins. Password checks run on the bounded login executor and are
+ * turned away at once when its queue is full, so a login burst cannot hold request threads.
+ * An account with too many failed attempts is locked out for a while, whether it exists or not.
+ * Every queued check holds one of the account's remaining attempts, so a burst of guesses
+ * sent at once cannot get more checks through than a lockout allows.
+ */
+@Component
+public class LoginGate {
+    
+    @Autowired
+    @Qualifier("loginExecutor")
+    private TaskExecutor loginExecutor;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Value("${clinic.login.max-failures:5}")
+    private int maxFailures;
+    
+    @Value("${clinic.login.lockout:5m}")
+    private Duration lockout;
+    
+    @Value("${clinic.login.busy-retry-after:2s}")
+    private Duration busyRetryAfter;
+    
+    @Value("${clinic.login.tracked-accounts:100000}")
+    private long trackedAccounts;
+    
+    private Cache<String, Attempts> attempts;
+    
+    private String unknownAccountHash;
+    
+    @PostConstruct
+    void init() {
+        attempts = Caffeine.newBuilder()
+                .maximumSize(trackedAccounts)
+                .expireAfterWrite(lockout)
+                .build();
+        unknownAccountHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+    
+    /**
+     * Runs a password check on the login executor
+     * @param account Account key, e.g. the role and email
+     * @param verification Password check returning the account, or null if the credentials are wrong
+     * @param <T> Account type
+     * @return Future of the check; fails with {@link LoginRejectedException} if the account is
+     *         locked out, has all its remaining attempts in progress, or the executor is saturated
+     */
+    public <T> CompletableFuture<T> verify(String account, Supplier<T> verification) {
+        String key = account.toLowerCase();
+        Attempts recent = attempts.get(key, k -> new Attempts());
+        long retryAfter = recent.retryAfterSeconds();
+        if (retryAfter > 0) {
+            return rejected(lockedOut(retryAfter));
+        }
+        if (recent.tryReserve(maxFailures) == false) {
+            return rejected(new LoginRejectedException(HttpStatus.TOO_MANY_REQUESTS, Math.max(1, busyRetryAfter.getSeconds()),
+                    "Too many login attempts in progress, please try again shortly"));
+        }
+        
+        try {
+            return CompletableFuture.supplyAsync(() -> check(key, recent, verification), loginExecutor);
+        } catch (TaskRejectedException e) {
+            recent.release();
+            return rejected(new LoginRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    Math.max(1, busyRetryAfter.getSeconds()), "Too many logins in progress, please try again shortly"));
+        }
+    }
+    
+    // Runs on the login executor with one attempt reserved
+    private <T> T check(String key, Attempts recent, Supplier<T> verification) {
+        // The account may have been locked out while the check was queued
+        long retryAfter = recent.retryAfterSeconds();
+        if (retryAfter > 0) {
+            recent.release();
+            throw new CompletionException(lockedOut(retryAfter));
+        }
+        T result;
+        try {
+            result = verification.get();
+        } catch (RuntimeException e) {
+            recent.release();
+            throw e;
+        }
+        if (result == null) {
+            recordFailure(key, recent);
+        } else {
+            recent.release();
+            attempts.invalidate(key);
+        }
+        return result;
+    }
+    
+    /**
+     * Spends the same hashing time as a real password check, so unknown emails
+     * cannot be told apart from wrong passwords by response time
+     * @param password Submitted password
+     */
+    public void verifyUnknownAccount(String password) {
+        passwordEncoder.matches(password, unknownAccountHash);
+    }
+    
+    /**
+     * Builds the response for a login that failed with an exception
+     * @param error Failure of the future returned by {@link #verify}
+     * @return 429 or 503 with Retry-After for rejected logins, 500 otherwise
+     */
+    public ResponseEntity<Map<String, Object>> errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        if (cause instanceof LoginRejectedException) {
+            LoginRejectedException rejection = (LoginRejectedException) cause;
+            response.put("message", rejection.getMessage());
+            return ResponseEntity.status(rejection.getStatus())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.getRetryAfterSeconds()))
+                    .body(response);
+        }
+        response.put("message", "Error during login: " + cause.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+    
+    private void recordFailure(String key, Attempts recent) {
+        if (recent.fail(maxFailures, lockout.toMillis())) {
+            // Rewrite the entry so it outlives the lockout
+            attempts.put(key, recent);
+        } else {
+            // Put the entry back if it expired while the check ran
+            attempts.asMap().putIfAbsent(key, recent);
+        }
+    }
+    
+    private static LoginRejectedException lockedOut(long retryAfter) {
+        return new LoginRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+                "Too many failed login attempts, please try again later");
+    }
+    
+    private static <T> CompletableFuture<T> rejected(LoginRejectedException e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+    
+    /**
+     * Failed attempts of one account since its first recent failure, and the checks still running
+     */
+    private static final class Attempts {
+        
+        private int failed;
+        
+        private int inProgress;
+        
+        private volatile long lockedUntil;
+        
+        long retryAfterSeconds() {
+            long remaining = lockedUntil - System.currentTimeMillis();
+            return remaining <= 0 ? 0 : (remaining + 999) / 1000;
+        }
+        
+        // Takes one of the attempts left before a lockout, if any is left
+        synchronized boolean tryReserve(int maxFailures) {
+            // A lockout that ran out before its entry expired starts the count over
+            if (lockedUntil != 0 && retryAfterSeconds() == 0) {
+                failed = 0;
+                lockedUntil = 0;
+            }
+            if (failed + inProgress >= maxFailures) {
+                return false;
+            }
+            inProgress++;
+            return true;
+        }
+        
+        synchronized void release() {
+            inProgress--;
+        }
+        
+        // Turns a reserved attempt into a failure; true if it locks the account out
+        synchronized boolean fail(int maxFailures, long lockoutMillis) {
+            inProgress--;
+            if (++failed >= maxFailures) {
+                lockedUntil = System.currentTimeMillis() + lockoutMillis;
+                return true;
+            }
+            return false;
+        }
+    }
+}
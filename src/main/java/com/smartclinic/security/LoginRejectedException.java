@@ -0,0 +1,27 @@
+package com.smartclinic.security;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A login attempt turned away before its password was checked
+ */
+public class LoginRejectedException extends RuntimeException {
+    
+    private final HttpStatus status;
+    
+    private final long retryAfterSeconds;
+    
+    public LoginRejectedException(HttpStatus status, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public HttpStatus getStatus() {
+        return status;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
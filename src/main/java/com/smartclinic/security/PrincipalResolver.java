@@ -0,0 +1,89 @@
+package com.smartclinic.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartclinic.repository.DoctorRepository;
+import com.smartclinic.repository.PatientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Resolves a token subject to a {@link ClinicPrincipal}, caching the result with a TTL.
+ * Account writes must call {@link #invalidate(String)} so a stale identity is never served.
+ */
+@Component
+public class PrincipalResolver implements MeterBinder {
+    
+    public static final String ADMIN_EMAIL = "admin@smartclinic.com";
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Autowired
+    private PatientRepository patientRepository;
+    
+    @Value("${clinic.cache.principals.max-size:100000}")
+    private long maxSize;
+    
+    @Value("${clinic.cache.principals.ttl:5m}")
+    private Duration ttl;
+    
+    private Cache<String, ClinicPrincipal> principals;
+    
+    @PostConstruct
+    void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, principals, "principals");
+    }
+    
+    /**
+     * Resolves the principal for an email taken from a verified token
+     * @param email Token subject
+     * @return Principal; callers check its roles
+     */
+    public ClinicPrincipal resolve(String email) {
+        return principals.get(email, this::load);
+    }
+    
+    /**
+     * Returns the principal only if it is cached, for callers that must not block on a lookup
+     * @param email Token subject
+     * @return Cached principal, or null
+     */
+    public ClinicPrincipal getIfCached(String email) {
+        return principals.getIfPresent(email);
+    }
+    
+    /**
+     * Drops the cached principal of an account after it is created or changed
+     * @param email Account email
+     */
+    public void invalidate(String email) {
+        if (email != null) {
+            principals.invalidate(email);
+        }
+    }
+    
+    private ClinicPrincipal load(String email) {
+        return new ClinicPrincipal(
+                email,
+                ADMIN_EMAIL.equals(email),
+                doctorRepository.findIdByEmail(email).orElse(null),
+                patientRepository.findIdByEmail(email).orElse(null));
+    }
+}
@@ -0,0 +1,116 @@
+package com.smartclinic.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.service.TokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The reactive read API's counterpart of JwtAuthenticationFilter and AdmissionControlFilter:
+ * resolves the caller from the bearer token, or from a {@link StreamTickets} ticket passed as
+ * "ticket" query parameter, into the {@link #PRINCIPAL_ATTRIBUTE} exchange attribute, then runs
+ * the request past {@link AdmissionControl} as a listing. A bulkhead permit is held until the
+ * response has been written. Event streams stay open as long as the client
+ * wants, so they are rate-limited but take no permit.
+ */
+public class ReactiveAdmissionFilter implements WebFilter {
+    
+    public static final String PRINCIPAL_ATTRIBUTE = ReactiveAdmissionFilter.class.getName() + ".principal";
+    
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    private final AdmissionControl admissionControl;
+    
+    private final TokenService tokenService;
+    
+    private final PrincipalResolver principalResolver;
+    
+    private final StreamTickets streamTickets;
+    
+    private final ObjectMapper objectMapper;
+    
+    private final Set<String> streamPaths;
+    
+    public ReactiveAdmissionFilter(AdmissionControl admissionControl, TokenService tokenService,
+                                   PrincipalResolver principalResolver, StreamTickets streamTickets,
+                                   ObjectMapper objectMapper, Set<String> streamPaths) {
+        this.admissionControl = admissionControl;
+        this.tokenService = tokenService;
+        this.principalResolver = principalResolver;
+        this.streamTickets = streamTickets;
+        this.objectMapper = objectMapper;
+        this.streamPaths = streamPaths;
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return resolveCaller(exchange.getRequest())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(caller -> admit(exchange, chain, caller.orElse(null)));
+    }
+    
+    private Mono<ClinicPrincipal> resolveCaller(ServerHttpRequest request) {
+        String header = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header == null) {
+            // Tokens are never taken from the URL, which access logs record
+            String ticket = request.getQueryParams().getFirst("ticket");
+            return Mono.justOrEmpty(ticket == null ? null : streamTickets.redeem(ticket));
+        }
+        String email = tokenService.validateToken(header.replace(BEARER_PREFIX, ""));
+        if (email == null) {
+            return Mono.empty();
+        }
+        ClinicPrincipal principal = principalResolver.getIfCached(email);
+        if (principal != null) {
+            return Mono.just(principal);
+        }
+        // A cache miss looks the account up through JPA, which must not run on an event-loop thread
+        return Mono.fromCallable(() -> principalResolver.resolve(email))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain, ClinicPrincipal caller) {
+        if (caller != null) {
+            exchange.getAttributes().put(PRINCIPAL_ATTRIBUTE, caller);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        boolean stream = streamPaths.contains(request.getPath().pathWithinApplication().value());
+        AdmissionControl.Admission admission = admissionControl.admitNow(AdmissionControl.RequestClass.LISTING,
+                remoteAddress == null ? null : remoteAddress.getHostString(), caller, stream == false);
+        if (admission.isAdmitted() == false) {
+            return reject(exchange.getResponse(), admission);
+        }
+        return chain.filter(exchange).doFinally(signal -> admission.release());
+    }
+    
+    private Mono<Void> reject(ServerHttpResponse response, AdmissionControl.Admission admission) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("message", admission.getMessage());
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(body))));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+}
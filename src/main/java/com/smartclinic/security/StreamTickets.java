@@ -0,0 +1,60 @@
+package com.smartclinic.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Short-lived, single-use tickets for opening an event stream. Browsers cannot set headers on an
+ * EventSource, so the stream URL has to carry the credential, and URLs end up in access logs and
+ * browser history. A ticket is worthless once used or a few seconds old, unlike the login token.
+ */
+@Component
+public class StreamTickets {
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    @Value("${clinic.schedule-updates.ticket-ttl:30s}")
+    private Duration ticketTtl;
+    
+    private Cache<String, ClinicPrincipal> tickets;
+    
+    @PostConstruct
+    void init() {
+        tickets = Caffeine.newBuilder()
+                .expireAfterWrite(ticketTtl)
+                .build();
+    }
+    
+    /**
+     * Issues a ticket for a caller
+     * @param principal Caller the ticket stands for
+     * @return Ticket, valid once within the ticket TTL
+     */
+    public String issue(ClinicPrincipal principal) {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, principal);
+        return ticket;
+    }
+    
+    /**
+     * Uses up a ticket
+     * @param ticket Ticket
+     * @return Caller the ticket was issued to, or null if it is unknown, used or expired
+     */
+    public ClinicPrincipal redeem(String ticket) {
+        return tickets.asMap().remove(ticket);
+    }
+    
+    public Duration getTicketTtl() {
+        return ticketTtl;
+    }
+}
@@ -0,0 +1,44 @@
+package com.smartclinic.security;
+
+/**
+ * Token bucket refilled continuously at a fixed rate, holding at most its capacity
+ */
+final class TokenBucket {
+    
+    private final double capacity;
+    
+    private final double tokensPerNano;
+    
+    private double tokens;
+    
+    private long refilledAt;
+    
+    TokenBucket(double ratePerSecond, double capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = this.capacity;
+        this.refilledAt = System.nanoTime();
+    }
+    
+    /**
+     * Takes a token if one is available
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be
+     */
+    synchronized long tryTake() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+    
+    /**
+     * Gives back a token taken for a request that was turned away later on
+     */
+    synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+}
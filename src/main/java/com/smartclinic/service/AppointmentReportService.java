@@ -0,0 +1,155 @@
+package com.smartclinic.service;
+
+import com.smartclinic.dto.AppointmentCounts;
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.entity.AppointmentRollup;
+import com.smartclinic.event.AppointmentChangedEvent;
+import com.smartclinic.repository.AppointmentRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Appointment reports read from per-doctor, per-day, per-status rollups.
+ * Every appointment change adds to or subtracts from the rollup rows it touches,
+ * so a report reads one row per day and status instead of scanning appointments.
+ */
+@Service
+public class AppointmentReportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(AppointmentReportService.class);
+    
+    // Upserts lock rows in this order in every transaction, so concurrent changes cannot deadlock
+    private static final Comparator<AppointmentRollup.Key> KEY_ORDER = Comparator.comparing(AppointmentRollup.Key::getDoctorId)
+            .thenComparing(AppointmentRollup.Key::getDate)
+            .thenComparing(AppointmentRollup.Key::getStatus);
+    
+    @Autowired
+    private AppointmentRollupRepository appointmentRollupRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        // First start on an existing database; later starts find the rollups already filled
+        if (appointmentRollupRepository.count() == 0) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Applies a committed appointment change to the rollups. A failure is logged rather than passed
+     * on, so it never fails the change itself; {@link #rebuild()} brings the rollups back in line
+     * @param event Appointment change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        Map<AppointmentRollup.Key, Long> deltas = new TreeMap<>(KEY_ORDER);
+        if (event.isCreated() == false) {
+            addDelta(deltas, event.getDoctorId(), event.getPreviousTime(), event.getPreviousStatus(), -1);
+        }
+        if (event.isDeleted() == false) {
+            addDelta(deltas, event.getDoctorId(), event.getTime(), event.getStatus(), 1);
+        }
+        try {
+            apply(deltas);
+        } catch (RuntimeException e) {
+            log.error("Could not update appointment rollups for appointment {}", event.getAppointmentId(), e);
+        }
+    }
+    
+    /**
+     * Counts appointments that were written in bulk, without change events
+     * @param appointments New appointments
+     */
+    public void recordImported(List<Appointment> appointments) {
+        Map<AppointmentRollup.Key, Long> deltas = new TreeMap<>(KEY_ORDER);
+        for (Appointment appointment : appointments) {
+            addDelta(deltas, appointment.getDoctor().getId(), appointment.getAppointmentTime(), appointment.getStatus(), 1);
+        }
+        apply(deltas);
+    }
+    
+    /**
+     * Recomputes every rollup from the appointments table. Changes made while it runs
+     * may be counted twice or not at all, so run it when the clinic is quiet
+     */
+    public void rebuild() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int rows = transaction.execute(status -> {
+            appointmentRollupRepository.deleteAllRows();
+            return appointmentRollupRepository.insertDoctorCounts() + appointmentRollupRepository.insertClinicCounts();
+        });
+        log.info("Rebuilt {} appointment rollup rows", rows);
+    }
+    
+    /**
+     * Gets a doctor's counts by status for each day of a range; days without appointments are left out
+     * @param doctorId Doctor ID, or {@link AppointmentRollup#CLINIC_TOTAL} for the whole clinic
+     * @param from First day (inclusive)
+     * @param to Last day (exclusive)
+     * @return Counts per day, in date order
+     */
+    public List<AppointmentCounts> getDailyCounts(Long doctorId, LocalDate from, LocalDate to) {
+        Map<LocalDate, AppointmentCounts> days = new LinkedHashMap<>();
+        for (AppointmentRollup rollup : appointmentRollupRepository.findCounts(doctorId, from, to)) {
+            days.computeIfAbsent(rollup.getDate(), AppointmentCounts::new).add(rollup.getStatus(), rollup.getAppointmentCount());
+        }
+        return new ArrayList<>(days.values());
+    }
+    
+    /**
+     * Gets a doctor's counts by status summed over a range of days
+     * @param doctorId Doctor ID, or {@link AppointmentRollup#CLINIC_TOTAL} for the whole clinic
+     * @param from First day (inclusive)
+     * @param to Last day (exclusive)
+     * @return Summed counts
+     */
+    public AppointmentCounts getTotals(Long doctorId, LocalDate from, LocalDate to) {
+        AppointmentCounts totals = new AppointmentCounts(null);
+        for (AppointmentRollup rollup : appointmentRollupRepository.findCounts(doctorId, from, to)) {
+            totals.add(rollup.getStatus(), rollup.getAppointmentCount());
+        }
+        return totals;
+    }
+    
+    private static void addDelta(Map<AppointmentRollup.Key, Long> deltas, Long doctorId, LocalDateTime time, String status, long delta) {
+        LocalDate date = time.toLocalDate();
+        deltas.merge(new AppointmentRollup.Key(doctorId, date, status), delta, Long::sum);
+        deltas.merge(new AppointmentRollup.Key(AppointmentRollup.CLINIC_TOTAL, date, status), delta, Long::sum);
+    }
+    
+    private void apply(Map<AppointmentRollup.Key, Long> deltas) {
+        // A reschedule within the day with the same status cancels out entirely
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // Called after the change's own transaction committed, which can no longer take writes
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.executeWithoutResult(status -> {
+            for (Map.Entry<AppointmentRollup.Key, Long> entry : deltas.entrySet()) {
+                AppointmentRollup.Key key = entry.getKey();
+                appointmentRollupRepository.addToCount(key.getDoctorId(), key.getDate(), key.getStatus(), entry.getValue());
+            }
+        });
+    }
+}
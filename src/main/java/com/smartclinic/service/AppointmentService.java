@@ -1,30 +1,100 @@
 package com.smartclinic.service;
 
+import com.smartclinic.dto.AppointmentView;
+import com.smartclinic.dto.KeysetCursor;
+import com.smartclinic.dto.KeysetPage;
+import com.smartclinic.dto.KeysetPageRequest;
 import com.smartclinic.entity.Appointment;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.entity.Patient;
+import com.smartclinic.event.AppointmentChangedEvent;
 import com.smartclinic.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class AppointmentService {
     
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentService.class);
+    
     @Autowired
     private AppointmentRepository appointmentRepository;
     
+    @Autowired
+    private SlotReservationEngine slotReservationEngine;
+    
+    @Autowired
+    @Qualifier("appointmentPersistExecutor")
+    private TaskExecutor appointmentPersistExecutor;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     /**
      * Implements a booking method that saves an appointment
      * @param appointment Appointment to save
      * @return Saved appointment
      */
     public Appointment bookAppointment(Appointment appointment) {
-        return appointmentRepository.save(appointment);
+        Appointment saved = appointmentRepository.save(appointment);
+        eventPublisher.publishEvent(AppointmentChangedEvent.booked(saved));
+        return saved;
+    }
+    
+    /**
+     * Reserves the doctor's slot in memory and persists the appointment asynchronously
+     * @param appointment Appointment to book; it must not be read again until the future completes
+     * @return Future of the saved appointment, failing if the write failed and the slot was released again;
+     *         null if the doctor is already booked at that time
+     * @throws TaskRejectedException if the persistence queue is full; the slot is released again
+     */
+    public CompletableFuture<Appointment> reserveAppointment(Appointment appointment) {
+        Long doctorId = appointment.getDoctor().getId();
+        LocalDateTime appointmentTime = appointment.getAppointmentTime();
+        if (slotReservationEngine.reserve(doctorId, appointmentTime) == false) {
+            return null;
+        }
+        
+        try {
+            return CompletableFuture.supplyAsync(() -> persistReservedAppointment(appointment), appointmentPersistExecutor);
+        } catch (TaskRejectedException e) {
+            slotReservationEngine.release(doctorId, appointmentTime);
+            throw e;
+        }
+    }
+    
+    /**
+     * Writes a reserved appointment, releasing its slot if the write fails
+     * @param appointment Reserved appointment
+     * @return Saved appointment
+     */
+    private Appointment persistReservedAppointment(Appointment appointment) {
+        Appointment saved;
+        try {
+            saved = appointmentRepository.save(appointment);
+        } catch (RuntimeException e) {
+            slotReservationEngine.release(appointment.getDoctor().getId(), appointment.getAppointmentTime());
+            logger.error("Failed to persist appointment for doctor {} at {}",
+                    appointment.getDoctor().getId(), appointment.getAppointmentTime(), e);
+            throw e;
+        }
+        eventPublisher.publishEvent(AppointmentChangedEvent.booked(saved));
+        return saved;
     }
     
     /**
@@ -33,8 +103,9 @@ public class AppointmentService {
      * @param date Specific date
      * @return List of appointments for the doctor on the given date
      */
+    @Transactional(readOnly = true)
     public List<Appointment> getAppointmentsForDoctorOnDate(Doctor doctor, LocalDate date) {
-        return appointmentRepository.findByDoctorAndDate(doctor, date);
+        return appointmentRepository.findByDoctorAndDay(doctor, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
     }
     
     /**
@@ -42,6 +113,7 @@ public class AppointmentService {
      * @param doctor Doctor entity
      * @return List of all appointments for the doctor
      */
+    @Transactional(readOnly = true)
     public List<Appointment> getAppointmentsForDoctor(Doctor doctor) {
         return appointmentRepository.findByDoctor(doctor);
     }
@@ -51,15 +123,47 @@ public class AppointmentService {
      * @param patient Patient entity
      * @return List of all appointments for the patient
      */
+    @Transactional(readOnly = true)
     public List<Appointment> getAppointmentsForPatient(Patient patient) {
         return appointmentRepository.findByPatient(patient);
     }
     
+    /**
+     * Gets one keyset page of a doctor's appointments as projections
+     * @param doctorId Doctor ID
+     * @param page Page request
+     * @return Page of appointments
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<AppointmentView> getAppointmentPageForDoctor(Long doctorId, KeysetPageRequest page) {
+        Pageable limit = PageRequest.of(0, page.getSize() + 1);
+        List<AppointmentView> rows = page.isDescending()
+                ? appointmentRepository.findViewsByDoctorBefore(doctorId, page.getFrom(), page.getTo(), page.getBoundaryTime(), page.getBoundaryId(), limit)
+                : appointmentRepository.findViewsByDoctorAfter(doctorId, page.getFrom(), page.getTo(), page.getBoundaryTime(), page.getBoundaryId(), limit);
+        return KeysetPage.of(rows, page.getSize(), a -> new KeysetCursor(a.getAppointmentTime(), a.getId()));
+    }
+    
+    /**
+     * Gets one keyset page of a patient's appointments as projections
+     * @param patientId Patient ID
+     * @param page Page request
+     * @return Page of appointments
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<AppointmentView> getAppointmentPageForPatient(Long patientId, KeysetPageRequest page) {
+        Pageable limit = PageRequest.of(0, page.getSize() + 1);
+        List<AppointmentView> rows = page.isDescending()
+                ? appointmentRepository.findViewsByPatientBefore(patientId, page.getFrom(), page.getTo(), page.getBoundaryTime(), page.getBoundaryId(), limit)
+                : appointmentRepository.findViewsByPatientAfter(patientId, page.getFrom(), page.getTo(), page.getBoundaryTime(), page.getBoundaryId(), limit);
+        return KeysetPage.of(rows, page.getSize(), a -> new KeysetCursor(a.getAppointmentTime(), a.getId()));
+    }
+    
     /**
      * Gets future appointments for a patient
      * @param patient Patient entity
      * @return List of future appointments for the patient
      */
+    @Transactional(readOnly = true)
     public List<Appointment> getFutureAppointmentsForPatient(Patient patient) {
         return appointmentRepository.findByPatientAndAppointmentTimeAfter(patient, LocalDateTime.now());
     }
@@ -71,6 +175,7 @@ public class AppointmentService {
      * @param end End time
      * @return List of appointments within the time range
      */
+    @Transactional(readOnly = true)
     public List<Appointment> getAppointmentsForDoctorInRange(Doctor doctor, LocalDateTime start, LocalDateTime end) {
         return appointmentRepository.findByDoctorAndAppointmentTimeBetween(doctor, start, end);
     }
@@ -86,20 +191,91 @@ public class AppointmentService {
     }
     
     /**
-     * Updates an appointment
+     * Updates an appointment. Cancelling frees its slot, once
      * @param appointment Appointment to update
      * @return Updated appointment
+     * @throws org.springframework.orm.ObjectOptimisticLockingFailureException if the appointment was changed since it was read
      */
     public Appointment updateAppointment(Appointment appointment) {
-        return appointmentRepository.save(appointment);
+        Appointment persisted = appointment;
+        if (appointment.getId() != null && appointment.getPersistedStatus() == null) {
+            // A detached copy does not know its stored state; the managed one does
+            persisted = appointmentRepository.findById(appointment.getId()).orElse(appointment);
+        }
+        LocalDateTime previousTime = persisted.getPersistedTime();
+        String previousStatus = persisted.getPersistedStatus();
+        
+        // The version check makes a second, concurrent cancellation fail here rather than free the slot again
+        Appointment updated = appointmentRepository.save(appointment);
+        if ("CANCELLED".equals(updated.getStatus()) && previousTime != null && "CANCELLED".equals(previousStatus) == false) {
+            slotReservationEngine.release(updated.getDoctor().getId(), previousTime);
+        }
+        eventPublisher.publishEvent(previousTime == null
+                ? AppointmentChangedEvent.booked(updated)
+                : AppointmentChangedEvent.changed(updated, previousTime, previousStatus));
+        return updated;
+    }
+    
+    /**
+     * Moves an appointment to a new time, keeping the slot index current
+     * @param appointmentId Appointment ID
+     * @param newTime New appointment time
+     * @return Updated appointment, or empty if it does not exist or the new slot is taken
+     */
+    public Optional<Appointment> rescheduleAppointment(Long appointmentId, LocalDateTime newTime) {
+        Optional<Appointment> appointmentOpt = appointmentRepository.findById(appointmentId);
+        if (appointmentOpt.isPresent() == false) {
+            return Optional.empty();
+        }
+        
+        Appointment appointment = appointmentOpt.get();
+        Long doctorId = appointment.getDoctor().getId();
+        LocalDateTime oldTime = appointment.getAppointmentTime();
+        if (newTime.equals(oldTime)) {
+            return Optional.of(appointment);
+        }
+        // Cancelled appointments hold no slot, so there is nothing to move. The appointment's own
+        // slot does not stand in the way of a move to an overlapping time
+        boolean holdsSlot = "CANCELLED".equals(appointment.getStatus()) == false;
+        if (holdsSlot && slotReservationEngine.reserveExcept(doctorId, newTime, oldTime) == false) {
+            return Optional.empty();
+        }
+        
+        appointment.setAppointmentTime(newTime);
+        Appointment updated;
+        try {
+            updated = appointmentRepository.save(appointment);
+        } catch (RuntimeException e) {
+            if (holdsSlot) {
+                slotReservationEngine.releaseExcept(doctorId, newTime, oldTime);
+            }
+            throw e;
+        }
+        if (holdsSlot) {
+            slotReservationEngine.releaseExcept(doctorId, oldTime, newTime);
+        }
+        eventPublisher.publishEvent(AppointmentChangedEvent.changed(updated, oldTime, updated.getStatus()));
+        return Optional.of(updated);
     }
     
     /**
-     * Deletes an appointment
+     * Deletes an appointment, freeing its slot unless it was cancelled
      * @param appointmentId Appointment ID to delete
+     * @throws org.springframework.orm.ObjectOptimisticLockingFailureException if the appointment was changed or deleted concurrently
      */
     public void deleteAppointment(Long appointmentId) {
-        appointmentRepository.deleteById(appointmentId);
+        Optional<Appointment> appointmentOpt = appointmentRepository.findById(appointmentId);
+        if (appointmentOpt.isPresent() == false) {
+            return;
+        }
+        
+        Appointment appointment = appointmentOpt.get();
+        appointmentRepository.delete(appointment);
+        // A cancelled appointment no longer holds its slot, which may have been booked again
+        if ("CANCELLED".equals(appointment.getStatus()) == false) {
+            slotReservationEngine.release(appointment.getDoctor().getId(), appointment.getAppointmentTime());
+        }
+        eventPublisher.publishEvent(AppointmentChangedEvent.deleted(appointment));
     }
     
     /**
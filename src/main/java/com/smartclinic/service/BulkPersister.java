@@ -0,0 +1,66 @@
+package com.smartclinic.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+/**
+ * Inserts large numbers of new entities through JDBC batches.
+ * Uses a private EntityManager that is flushed and cleared every JDBC batch and
+ * committed every chunk, so memory stays flat however many rows are written and
+ * the request's own persistence context is left untouched.
+ */
+@Component
+public class BulkPersister {
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int batchSize;
+    
+    @Value("${clinic.bulk.chunk-size:10000}")
+    private int chunkSize;
+    
+    /**
+     * Persists new entities in batched, separately committed chunks.
+     * Associations may be id-only instances (e.g. a Doctor with just its id set);
+     * a failure rolls back the current chunk only
+     * @param entities New entities to insert
+     * @return Number of entities persisted
+     */
+    public long persistAll(Iterable<?> entities) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+        try {
+            long count = 0;
+            transaction.begin();
+            for (Object entity : entities) {
+                entityManager.persist(entity);
+                count++;
+                if (count % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+                if (count % chunkSize == 0) {
+                    transaction.commit();
+                    transaction.begin();
+                }
+            }
+            entityManager.flush();
+            transaction.commit();
+            return count;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+}
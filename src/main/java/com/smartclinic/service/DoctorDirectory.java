@@ -0,0 +1,114 @@
+package com.smartclinic.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.repository.DoctorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through, size-bounded cache of doctors keyed by id.
+ * Entries are detached entities with their available times loaded;
+ * callers must invalidate an entry whenever the doctor is written.
+ */
+@Component
+public class DoctorDirectory implements MeterBinder {
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Value("${clinic.cache.doctors.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${clinic.cache.doctors.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+    
+    private Cache<Long, Doctor> doctors;
+    
+    // Bumped by every invalidation, so a batch load that overlapped one does not cache what it read
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    @PostConstruct
+    void init() {
+        doctors = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, doctors, "doctors");
+    }
+    
+    /**
+     * Gets a doctor by ID, loading it with a single indexed fetch on a miss
+     * @param doctorId Doctor ID
+     * @return Optional Doctor
+     */
+    public Optional<Doctor> get(Long doctorId) {
+        // Loaded under the entry's lock, so an invalidation racing with the load waits for it and
+        // then removes what it read; a null is not cached, so a doctor added later is found next time
+        return Optional.ofNullable(doctors.get(doctorId,
+                id -> doctorRepository.findWithAvailableTimesById(id).orElse(null)));
+    }
+    
+    /**
+     * Gets many doctors, loading all cache misses with one query
+     * @param doctorIds Doctor IDs
+     * @return Doctors found, in the order of the IDs
+     */
+    public List<Doctor> getAll(List<Long> doctorIds) {
+        Map<Long, Doctor> found = new HashMap<>(doctors.getAllPresent(doctorIds));
+        List<Long> missing = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            if (found.containsKey(doctorId) == false) {
+                missing.add(doctorId);
+            }
+        }
+        if (missing.isEmpty() == false) {
+            // Cache.getAll stores a bulk load with plain puts, which an invalidation during the
+            // query would not remove; each doctor is stored under its entry's lock instead, and
+            // only if no invalidation has started since the query began
+            long before = invalidations.get();
+            for (Doctor doctor : doctorRepository.findWithAvailableTimesByIdIn(missing)) {
+                found.put(doctor.getId(), doctor);
+                doctors.asMap().compute(doctor.getId(),
+                        (id, current) -> current != null || invalidations.get() != before ? current : doctor);
+            }
+        }
+        
+        List<Doctor> result = new ArrayList<>(doctorIds.size());
+        for (Long doctorId : doctorIds) {
+            Doctor doctor = found.get(doctorId);
+            if (doctor != null) {
+                result.add(doctor);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Invalidates a cached doctor
+     * @param doctorId Doctor ID
+     */
+    public void invalidate(Long doctorId) {
+        invalidations.incrementAndGet();
+        doctors.invalidate(doctorId);
+    }
+}
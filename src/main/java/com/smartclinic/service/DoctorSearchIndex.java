@@ -0,0 +1,813 @@
+package com.smartclinic.service;
+
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.repository.DoctorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index over doctor names and specialties, for typeahead search.
+ * Text is lower-cased and stripped of accents. Each field keeps a sorted word dictionary,
+ * for whole-word and prefix matches, and trigram lists, for matches inside a word.
+ * Working hours are kept in a grid of (start hour, end hour) buckets per specialty, so
+ * discovery queries combine specialty, name prefix and time-of-day filters in memory.
+ * Results rank name before specialty and, within a field, whole word before prefix before
+ * inside a word; ties come in name order. Single-word queries walk these tiers in order and
+ * stop at the limit, so a broad query costs about as much as a selective one.
+ * Lists are append-only and may hold stale slots, so every candidate is checked against the
+ * doctor's current words. Searches are lock-free; writes are serialized. The index is rebuilt
+ * from the database periodically, which also restores name order and picks up doctors
+ * written by other instances.
+ */
+@Component
+public class DoctorSearchIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(DoctorSearchIndex.class);
+    
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    
+    // Blank, a-z, 0-9 and one shared code for any other character
+    private static final int ALPHABET = 38;
+    
+    private static final int GRAMS = ALPHABET * ALPHABET * ALPHABET;
+    
+    private static final int NAME = 0;
+    
+    private static final int SPECIALTY = 1;
+    
+    private static final int WHOLE_WORD = 3;
+    
+    private static final int PREFIX = 2;
+    
+    private static final int INSIDE = 1;
+    
+    // Working hours are bucketed by (start hour, end hour rounded up): 24 x 25 buckets
+    private static final int HOUR_BUCKETS = 24 * 25;
+    
+    private static final String ANY_SPECIALTY = "";
+    
+    // Above this many dictionary words, a prefix is served from its trigram list instead of merging
+    private static final int MAX_MERGED_WORDS = 64;
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Value("${clinic.search.doctors.default-limit:20}")
+    private int defaultLimit;
+    
+    @Value("${clinic.search.doctors.max-limit:100}")
+    private int maxLimit;
+    
+    @Value("${clinic.search.doctors.rebuild-interval:10m}")
+    private Duration rebuildInterval;
+    
+    private final Object writeLock = new Object();
+    
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    
+    private volatile Index index;
+    
+    private volatile long builtAt;
+    
+    // Doctors saved while a rebuild reads the database; replayed onto the new index
+    private List<Doctor> pendingDuringRebuild;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (index == null) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Finds doctors whose name or specialty matches every word of the query.
+     * One- and two-letter words match the start of a word; longer ones match anywhere in it
+     * @param query Search text
+     * @param limit Maximum number of results, or null for the default
+     * @return Doctor IDs, best match first
+     */
+    public List<Long> search(String query, Integer limit) {
+        Index current = index;
+        if (current == null) {
+            rebuild();
+            current = index;
+            if (current == null) {
+                // Being built by another caller
+                return new ArrayList<>();
+            }
+        } else if (System.currentTimeMillis() - builtAt > rebuildInterval.toMillis() || current.isMostlyStale()) {
+            rebuildInBackground();
+        }
+        
+        String[] words = words(query);
+        int max = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        if (words.length == 0) {
+            return new ArrayList<>();
+        }
+        return words.length == 1 ? current.searchWord(words[0], max) : current.searchAll(words, max);
+    }
+    
+    /**
+     * Finds every doctor matching all of the given filters, in name order
+     * @param specialty Specialty, compared ignoring case and accents; null for any
+     * @param name Every word must start a word of the doctor's name; null for any
+     * @param from Start of the time-of-day window
+     * @param to End of the time-of-day window
+     * @param minMinutes Minimum overlap between the window and the doctor's working hours
+     * @return Matching doctors with their working hours
+     */
+    public List<Candidate> filter(String specialty, String name, LocalTime from, LocalTime to, int minMinutes) {
+        Index current = index;
+        if (current == null) {
+            rebuild();
+            current = index;
+            if (current == null) {
+                return new ArrayList<>();
+            }
+        }
+        String specialtyKey = specialty == null ? null : String.join(" ", words(specialty));
+        int toMinute = to.equals(LocalTime.MIDNIGHT) ? 24 * 60 : to.toSecondOfDay() / 60;
+        return current.filter(specialtyKey, words(name), from.toSecondOfDay() / 60, toMinute, minMinutes);
+    }
+    
+    /**
+     * Adds or re-indexes a doctor after it has been saved
+     * @param doctor Saved doctor
+     */
+    public void update(Doctor doctor) {
+        if (doctor.getId() == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            Index current = index;
+            if (current != null) {
+                current.put(Document.of(doctor));
+            }
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(doctor);
+            }
+        }
+    }
+    
+    /**
+     * Rebuilds the index from the database and swaps it in
+     */
+    public void rebuild() {
+        synchronized (writeLock) {
+            if (pendingDuringRebuild != null) {
+                // Another rebuild is reading the database; searches keep using the current index
+                return;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        
+        Index rebuilt = new Index();
+        boolean loaded = false;
+        try {
+            List<Document> documents = new ArrayList<>();
+            for (Object[] row : doctorRepository.findAllSearchFields()) {
+                documents.add(new Document((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                        (LocalTime) row[4], (LocalTime) row[5]));
+            }
+            // Slots follow name order, so lists read in slot order come out sorted by name
+            documents.sort(Comparator.comparing((Document document) -> document.sortKey).thenComparingLong(document -> document.id));
+            for (Document document : documents) {
+                rebuilt.put(document);
+            }
+            loaded = true;
+        } finally {
+            synchronized (writeLock) {
+                if (loaded) {
+                    for (Doctor doctor : pendingDuringRebuild) {
+                        rebuilt.put(Document.of(doctor));
+                    }
+                    index = rebuilt;
+                    builtAt = System.currentTimeMillis();
+                }
+                pendingDuringRebuild = null;
+            }
+        }
+        log.debug("Doctor search index rebuilt with {} doctors", rebuilt.size());
+    }
+    
+    private void rebuildInBackground() {
+        if (rebuilding.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Doctor search index rebuild failed", e);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Lower-cases text, strips accents and splits it into words of letters and digits
+     * @param text Text, may be null
+     * @return Words, possibly none
+     */
+    static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= stripped.length(); i++) {
+            char c = i < stripped.length() ? stripped.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+    
+    private static int code(char c) {
+        if (c == ' ') {
+            return 0;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return 1 + c - 'a';
+        }
+        if (c >= '0' && c <= '9') {
+            return 27 + c - '0';
+        }
+        return ALPHABET - 1;
+    }
+    
+    private static int gram(char a, char b, char c) {
+        return (code(a) * ALPHABET + code(b)) * ALPHABET + code(c);
+    }
+    
+    /**
+     * Trigrams a query word needs: a padded prefix for one or two letters, its own trigrams otherwise
+     */
+    private static int[] queryGrams(String word) {
+        if (word.length() == 1) {
+            return new int[] {gram(' ', ' ', word.charAt(0))};
+        }
+        if (word.length() == 2) {
+            return new int[] {gram(' ', word.charAt(0), word.charAt(1))};
+        }
+        int[] grams = new int[word.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = gram(word.charAt(i), word.charAt(i + 1), word.charAt(i + 2));
+        }
+        return grams;
+    }
+    
+    /**
+     * Trigrams every word starting with the query word has: its padded start and its own trigrams
+     */
+    private static int[] prefixGrams(String word) {
+        int[] grams = queryGrams(word);
+        if (word.length() < 3) {
+            return grams;
+        }
+        grams = Arrays.copyOf(grams, grams.length + 1);
+        grams[grams.length - 1] = gram(' ', word.charAt(0), word.charAt(1));
+        return grams;
+    }
+    
+    /**
+     * Every trigram of the words, each word padded with two leading blanks; sorted and distinct
+     */
+    private static int[] documentGrams(String[] words) {
+        int count = 0;
+        for (String word : words) {
+            count += word.length();
+        }
+        int[] grams = new int[count];
+        int n = 0;
+        for (String word : words) {
+            String padded = "  " + word;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams[n++] = gram(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2));
+            }
+        }
+        return Arrays.stream(grams, 0, n).sorted().distinct().toArray();
+    }
+    
+    /**
+     * How well a query word matches a word
+     * @return {@link #WHOLE_WORD}, {@link #PREFIX}, {@link #INSIDE} (three letters or more) or 0
+     */
+    private static int match(String queryWord, String word) {
+        if (word.startsWith(queryWord)) {
+            return word.length() == queryWord.length() ? WHOLE_WORD : PREFIX;
+        }
+        return queryWord.length() >= 3 && word.indexOf(queryWord, 1) > 0 ? INSIDE : 0;
+    }
+    
+    private static boolean anyMatch(String[] words, String queryWord, int kind) {
+        for (String word : words) {
+            if (match(queryWord, word) == kind) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static int hourBucket(int startMinute, int endMinute) {
+        return Math.min(startMinute / 60, 23) * 25 + Math.min((endMinute + 59) / 60, 24);
+    }
+    
+    private static Document document(AtomicReferenceArray<Document> documents, int slot) {
+        // A slot listed after the caller took its snapshot of the documents is skipped
+        return slot < documents.length() ? documents.get(slot) : null;
+    }
+    
+    /**
+     * A doctor found by {@link #filter}, with working hours as minutes of the day
+     */
+    public static final class Candidate {
+        
+        private final long doctorId;
+        
+        private final int startMinute;
+        
+        private final int endMinute;
+        
+        Candidate(long doctorId, int startMinute, int endMinute) {
+            this.doctorId = doctorId;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+        
+        public long getDoctorId() {
+            return doctorId;
+        }
+        
+        public int getStartMinute() {
+            return startMinute;
+        }
+        
+        public int getEndMinute() {
+            return endMinute;
+        }
+    }
+    
+    /**
+     * A doctor's searchable text, split into words
+     */
+    private static final class Document {
+        
+        final long id;
+        
+        final String[][] fields;
+        
+        final String sortKey;
+        
+        final String specialtyKey;
+        
+        final int startMinute;
+        
+        final int endMinute;
+        
+        // Number of list entries made for this document; written under the write lock
+        int entries;
+        
+        Document(long id, String firstName, String lastName, String specialty, LocalTime start, LocalTime end) {
+            String[] first = words(firstName);
+            String[] last = words(lastName);
+            String[] name = Arrays.copyOf(first, first.length + last.length);
+            System.arraycopy(last, 0, name, first.length, last.length);
+            this.id = id;
+            this.fields = new String[][] {name, words(specialty)};
+            this.sortKey = String.join(" ", last) + " " + String.join(" ", first);
+            this.specialtyKey = String.join(" ", fields[SPECIALTY]);
+            this.startMinute = start == null ? 0 : start.toSecondOfDay() / 60;
+            this.endMinute = end == null ? 0 : end.toSecondOfDay() / 60;
+        }
+        
+        static Document of(Doctor doctor) {
+            return new Document(doctor.getId(), doctor.getFirstName(), doctor.getLastName(), doctor.getSpecialty(),
+                    doctor.getAvailableStartTime(), doctor.getAvailableEndTime());
+        }
+        
+        /**
+         * Checks the discovery filters against the doctor's current data
+         */
+        boolean matches(String specialty, String[] nameWords, int fromMinute, int toMinute, int minMinutes) {
+            if (specialty != null && specialty.equals(specialtyKey) == false) {
+                return false;
+            }
+            if (Math.max(startMinute, fromMinute) + minMinutes > Math.min(endMinute, toMinute)) {
+                return false;
+            }
+            for (String queryWord : nameWords) {
+                boolean found = false;
+                for (String word : fields[NAME]) {
+                    found |= word.startsWith(queryWord);
+                }
+                if (found == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Scores a multi-word match; any name match outranks any specialty match
+         * @param queryWords Query words
+         * @return Sum over query words of their best match, or 0 if some word does not match
+         */
+        int score(String[] queryWords) {
+            int score = 0;
+            for (String queryWord : queryWords) {
+                int best = 0;
+                for (String word : fields[NAME]) {
+                    int match = match(queryWord, word);
+                    best = Math.max(best, match == 0 ? 0 : WHOLE_WORD + match);
+                }
+                for (String word : fields[SPECIALTY]) {
+                    best = Math.max(best, match(queryWord, word));
+                }
+                if (best == 0) {
+                    return 0;
+                }
+                score += best;
+            }
+            return score;
+        }
+    }
+    
+    /**
+     * Append-only list of slots. Only the writer appends; readers see a prefix of the list
+     */
+    private static final class Posting {
+        
+        private volatile int[] slots = new int[4];
+        
+        private volatile int size;
+        
+        void add(int slot) {
+            int[] current = slots;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                slots = current;
+            }
+            current[size] = slot;
+            size = size + 1;
+        }
+    }
+    
+    /**
+     * Position in one list during a merge
+     */
+    private static final class Cursor {
+        
+        final int size;
+        
+        final int[] slots;
+        
+        int position;
+        
+        Cursor(Posting posting) {
+            this.size = posting.size;
+            this.slots = posting.slots;
+        }
+        
+        int slot() {
+            return slots[position];
+        }
+    }
+    
+    /**
+     * Word dictionary and trigram lists of one field
+     */
+    private static final class Field {
+        
+        final ConcurrentSkipListMap<String, Posting> words = new ConcurrentSkipListMap<>();
+        
+        final AtomicReferenceArray<Posting> grams = new AtomicReferenceArray<>(GRAMS);
+        
+        /**
+         * Lists a slot under each of its words and trigrams
+         * @return Number of list entries added
+         */
+        int add(int slot, String[] fieldWords) {
+            int added = 0;
+            for (String word : new HashSet<>(Arrays.asList(fieldWords))) {
+                words.computeIfAbsent(word, w -> new Posting()).add(slot);
+                added++;
+            }
+            for (int gram : documentGrams(fieldWords)) {
+                Posting posting = grams.get(gram);
+                if (posting == null) {
+                    posting = new Posting();
+                    grams.set(gram, posting);
+                }
+                posting.add(slot);
+                added++;
+            }
+            return added;
+        }
+        
+        int gramSize(int gram) {
+            Posting posting = grams.get(gram);
+            return posting == null ? 0 : posting.size;
+        }
+        
+        /**
+         * Shortest trigram list of a query word
+         * @return List, or null if the word cannot match in this field
+         */
+        Posting shortest(int[] queryGrams) {
+            Posting shortest = null;
+            for (int gram : queryGrams) {
+                Posting posting = grams.get(gram);
+                if (posting == null) {
+                    return null;
+                }
+                if (shortest == null || posting.size < shortest.size) {
+                    shortest = posting;
+                }
+            }
+            return shortest;
+        }
+    }
+    
+    /**
+     * One generation of the index. Writes happen under the enclosing write lock
+     */
+    private static final class Index {
+        
+        private final Field[] fields = {new Field(), new Field()};
+        
+        // Working hours grid per specialty key, plus one for all doctors under ANY_SPECIALTY
+        private final ConcurrentHashMap<String, AtomicReferenceArray<Posting>> hours = new ConcurrentHashMap<>();
+        
+        private final Map<Long, Integer> slotsById = new HashMap<>();
+        
+        private volatile AtomicReferenceArray<Document> documents = new AtomicReferenceArray<>(1024);
+        
+        private volatile int postedEntries;
+        
+        private volatile int liveEntries;
+        
+        int size() {
+            return slotsById.size();
+        }
+        
+        /**
+         * Whether re-indexed doctors have left enough stale entries behind to be worth a rebuild
+         */
+        boolean isMostlyStale() {
+            int stale = postedEntries - liveEntries;
+            return stale > 10000 && stale > liveEntries / 4;
+        }
+        
+        void put(Document document) {
+            Integer slot = slotsById.get(document.id);
+            if (slot == null) {
+                slot = slotsById.size();
+                slotsById.put(document.id, slot);
+                if (slot == documents.length()) {
+                    AtomicReferenceArray<Document> grown = new AtomicReferenceArray<>(slot * 2);
+                    for (int i = 0; i < slot; i++) {
+                        grown.set(i, documents.get(i));
+                    }
+                    documents = grown;
+                }
+            }
+            
+            // Published before the slot is listed anywhere, so a listed slot always has a document
+            Document previous = documents.get(slot);
+            documents.set(slot, document);
+            for (int field = NAME; field <= SPECIALTY; field++) {
+                document.entries += fields[field].add(slot, document.fields[field]);
+            }
+            for (String key : new String[] {ANY_SPECIALTY, document.specialtyKey}) {
+                AtomicReferenceArray<Posting> grid = hours.computeIfAbsent(key, k -> new AtomicReferenceArray<>(HOUR_BUCKETS));
+                int bucket = hourBucket(document.startMinute, document.endMinute);
+                if (grid.get(bucket) == null) {
+                    grid.set(bucket, new Posting());
+                }
+                grid.get(bucket).add(slot);
+                document.entries++;
+            }
+            postedEntries += document.entries;
+            liveEntries += document.entries - (previous == null ? 0 : previous.entries);
+        }
+        
+        /**
+         * Single-word search, walking the ranking tiers in order until the limit is reached
+         */
+        List<Long> searchWord(String queryWord, int limit) {
+            List<Long> ids = new ArrayList<>(limit);
+            Set<Integer> taken = new HashSet<>();
+            for (int field = NAME; field <= SPECIALTY && ids.size() < limit; field++) {
+                Field index = fields[field];
+                int f = field;
+                Posting whole = index.words.get(queryWord);
+                if (whole != null) {
+                    collect(Collections.singletonList(whole), d -> anyMatch(d.fields[f], queryWord, WHOLE_WORD), taken, ids, limit);
+                }
+                collect(prefixLists(index, queryWord), d -> anyMatch(d.fields[f], queryWord, PREFIX), taken, ids, limit);
+                if (queryWord.length() >= 3) {
+                    Posting shortest = index.shortest(queryGrams(queryWord));
+                    if (shortest != null) {
+                        collect(Collections.singletonList(shortest), d -> anyMatch(d.fields[f], queryWord, INSIDE), taken, ids, limit);
+                    }
+                }
+            }
+            return ids;
+        }
+        
+        /**
+         * Finds every doctor matching all filters, reading whichever candidate lists are shorter:
+         * the working-hours buckets or the name's trigram list
+         */
+        List<Candidate> filter(String specialtyKey, String[] nameWords, int fromMinute, int toMinute, int minMinutes) {
+            List<Posting> candidates = new ArrayList<>();
+            long hoursSize = 0;
+            AtomicReferenceArray<Posting> grid = hours.get(specialtyKey == null ? ANY_SPECIALTY : specialtyKey);
+            if (grid == null) {
+                return new ArrayList<>();
+            }
+            // Bucket (start hour, end hour) can hold a match only if its earliest start and latest end allow one
+            for (int startHour = 0; startHour < 24 && startHour * 60 <= toMinute - minMinutes; startHour++) {
+                for (int endHour = 24; endHour >= 0 && endHour * 60 >= fromMinute + minMinutes; endHour--) {
+                    Posting posting = grid.get(startHour * 25 + endHour);
+                    if (posting != null) {
+                        candidates.add(posting);
+                        hoursSize += posting.size;
+                    }
+                }
+            }
+            for (String word : nameWords) {
+                Posting posting = fields[NAME].shortest(prefixGrams(word));
+                if (posting == null) {
+                    return new ArrayList<>();
+                }
+                if (posting.size < hoursSize) {
+                    candidates = Collections.singletonList(posting);
+                    hoursSize = posting.size;
+                }
+            }
+            
+            List<Integer> matched = new ArrayList<>();
+            Set<Integer> seen = new HashSet<>();
+            AtomicReferenceArray<Document> current = documents;
+            for (Posting posting : candidates) {
+                int size = posting.size;
+                int[] slots = posting.slots;
+                for (int i = 0; i < size; i++) {
+                    Document document = document(current, slots[i]);
+                    if (document != null && seen.add(slots[i]) && document.matches(specialtyKey, nameWords, fromMinute, toMinute, minMinutes)) {
+                        matched.add(slots[i]);
+                    }
+                }
+            }
+            
+            // Slot order is name order
+            Collections.sort(matched);
+            List<Candidate> matches = new ArrayList<>(matched.size());
+            for (int slot : matched) {
+                Document document = current.get(slot);
+                matches.add(new Candidate(document.id, document.startMinute, document.endMinute));
+            }
+            return matches;
+        }
+        
+        /**
+         * Lists holding every doctor with a word that starts with the query word: the dictionary
+         * entries when there are few such words, otherwise the shortest prefix trigram list
+         */
+        private static Collection<Posting> prefixLists(Field field, String queryWord) {
+            NavigableMap<String, Posting> range = field.words.subMap(queryWord, false, queryWord + Character.MAX_VALUE, false);
+            int words = 0;
+            for (Iterator<String> it = range.keySet().iterator(); it.hasNext() && words <= MAX_MERGED_WORDS; it.next()) {
+                words++;
+            }
+            if (words <= MAX_MERGED_WORDS) {
+                return range.values();
+            }
+            Posting shortest = field.shortest(prefixGrams(queryWord));
+            return shortest == null ? Collections.emptyList() : Collections.singletonList(shortest);
+        }
+        
+        /**
+         * Multi-word search: scores every doctor on the shortest trigram list any query word needs
+         */
+        List<Long> searchAll(String[] queryWords, int limit) {
+            int bestSize = Integer.MAX_VALUE;
+            int bestGram = -1;
+            for (String word : queryWords) {
+                for (int gram : queryGrams(word)) {
+                    int size = fields[NAME].gramSize(gram) + fields[SPECIALTY].gramSize(gram);
+                    if (size < bestSize) {
+                        bestSize = size;
+                        bestGram = gram;
+                    }
+                }
+            }
+            if (bestSize == 0) {
+                return new ArrayList<>();
+            }
+            
+            // Hits are {score, slot}; the heap keeps the best ones with the worst at its head
+            Comparator<int[]> ranking = Comparator.<int[]>comparingInt(hit -> -hit[0]).thenComparingInt(hit -> hit[1]);
+            PriorityQueue<int[]> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+            Set<Integer> seen = new HashSet<>();
+            for (Field field : fields) {
+                Posting posting = field.grams.get(bestGram);
+                if (posting == null) {
+                    continue;
+                }
+                int size = posting.size;
+                int[] slots = posting.slots;
+                AtomicReferenceArray<Document> current = documents;
+                for (int i = 0; i < size; i++) {
+                    int slot = slots[i];
+                    Document document = document(current, slot);
+                    if (document == null || seen.add(slot) == false) {
+                        continue;
+                    }
+                    int score = document.score(queryWords);
+                    if (score > 0) {
+                        best.add(new int[] {score, slot});
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+            
+            List<int[]> hits = new ArrayList<>(best);
+            hits.sort(ranking);
+            AtomicReferenceArray<Document> current = documents;
+            List<Long> ids = new ArrayList<>(hits.size());
+            for (int[] hit : hits) {
+                ids.add(current.get(hit[1]).id);
+            }
+            return ids;
+        }
+        
+        /**
+         * Merges lists in slot order, taking doctors that pass the check until the limit is reached
+         */
+        private void collect(Collection<Posting> postings, Predicate<Document> check, Set<Integer> taken, List<Long> ids, int limit) {
+            if (ids.size() >= limit) {
+                return;
+            }
+            PriorityQueue<Cursor> merge = new PriorityQueue<>(Math.max(1, postings.size()), Comparator.comparingInt(Cursor::slot));
+            for (Posting posting : postings) {
+                Cursor cursor = new Cursor(posting);
+                if (cursor.size > 0) {
+                    merge.add(cursor);
+                }
+            }
+            AtomicReferenceArray<Document> current = documents;
+            while (ids.size() < limit && merge.isEmpty() == false) {
+                Cursor cursor = merge.poll();
+                int slot = cursor.slot();
+                Document document = document(current, slot);
+                if (document != null && taken.contains(slot) == false && check.test(document)) {
+                    taken.add(slot);
+                    ids.add(document.id);
+                }
+                cursor.position++;
+                if (cursor.position < cursor.size) {
+                    merge.add(cursor);
+                }
+            }
+        }
+    }
+}
@@ -1,22 +1,56 @@
 package com.smartclinic.service;
 
+import com.smartclinic.dto.AvailableSlot;
+import com.smartclinic.dto.DoctorAvailability;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.repository.DoctorRepository;
+import com.smartclinic.security.LoginGate;
+import com.smartclinic.security.PrincipalResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class DoctorService {
     
+    private static final Logger log = LoggerFactory.getLogger(DoctorService.class);
+    
+    // Offered slots are as long as the slots bookings reserve
+    private static final int SLOT_MINUTES = SlotReservationEngine.SLOT_MINUTES;
+    
     @Autowired
     private DoctorRepository doctorRepository;
     
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+    
+    @Autowired
+    private SlotReservationEngine slotReservationEngine;
+    
+    @Autowired
+    private DoctorSearchIndex doctorSearchIndex;
+    
+    @Autowired
+    private PrincipalResolver principalResolver;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private LoginGate loginGate;
+    
     /**
      * Returns available time slots for doctor on a given date
      * @param doctorId Doctor ID
@@ -24,7 +58,7 @@ public class DoctorService {
      * @return List of available time slots
      */
     public List<LocalTime> getAvailableTimeSlots(Long doctorId, LocalDate date) {
-        Optional<Doctor> doctorOpt = doctorRepository.findById(doctorId);
+        Optional<Doctor> doctorOpt = doctorDirectory.get(doctorId);
         if (doctorOpt.isPresent() == false) {
             return new ArrayList<>();
         }
@@ -32,34 +66,179 @@ public class DoctorService {
         Doctor doctor = doctorOpt.get();
         List<LocalTime> availableSlots = new ArrayList<>();
         
-        // Generate time slots between doctor's available hours
-        LocalTime startTime = doctor.getAvailableStartTime();
-        LocalTime endTime = doctor.getAvailableEndTime();
-        
-        LocalTime currentTime = startTime;
-        while (currentTime.isBefore(endTime)) {
-            availableSlots.add(currentTime);
-            currentTime = currentTime.plusHours(1); // 1-hour slots
+        // Generate 1-hour slots between doctor's available hours, skipping booked ones
+        int startMinute = doctor.getAvailableStartTime().toSecondOfDay() / 60;
+        int endMinute = doctor.getAvailableEndTime().toSecondOfDay() / 60;
+        for (int minute = startMinute; minute < endMinute; minute += SLOT_MINUTES) {
+            if (slotReservationEngine.isRangeFree(doctorId, date, minute, Math.min(minute + SLOT_MINUTES, endMinute))) {
+                availableSlots.add(LocalTime.ofSecondOfDay(minute * 60L));
+            }
         }
         
         return availableSlots;
     }
     
     /**
-     * Validates doctor login credentials and returns structured response
+     * Finds the earliest free slot across all doctors of a specialty
+     * @param specialty Medical specialty
+     * @param from First day to search
+     * @param days Number of days to search
+     * @return Optional earliest available slot
+     */
+    public Optional<AvailableSlot> findFirstAvailableSlot(String specialty, LocalDate from, int days) {
+        List<Doctor> doctors = doctorRepository.findBySpecialty(specialty);
+        if (doctors.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        List<Long> doctorIds = new ArrayList<>();
+        for (Doctor doctor : doctors) {
+            doctorIds.add(doctor.getId());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate first = from.isBefore(now.toLocalDate()) ? now.toLocalDate() : from;
+        LocalDate to = from.plusDays(days);
+        if (first.isBefore(to) == false) {
+            return Optional.empty();
+        }
+        slotReservationEngine.preload(doctorIds, first, to);
+        
+        for (LocalDate date = first; date.isBefore(to); date = date.plusDays(1)) {
+            // Slots that have already started today are not offered
+            int notBefore = date.equals(now.toLocalDate()) ? now.getHour() * 60 + now.getMinute() + 1 : 0;
+            AvailableSlot earliest = null;
+            for (Doctor doctor : doctors) {
+                int startMinute = doctor.getAvailableStartTime().toSecondOfDay() / 60;
+                int endMinute = doctor.getAvailableEndTime().toSecondOfDay() / 60;
+                if (earliest != null) {
+                    // Only slots before the best one found so far can improve on it
+                    endMinute = Math.min(endMinute, earliest.getTime().toSecondOfDay() / 60);
+                }
+                for (int minute = startMinute; minute < endMinute; minute += SLOT_MINUTES) {
+                    if (minute < notBefore) {
+                        continue;
+                    }
+                    int slotEnd = Math.min(minute + SLOT_MINUTES, doctor.getAvailableEndTime().toSecondOfDay() / 60);
+                    if (slotReservationEngine.isRangeFree(doctor.getId(), date, minute, slotEnd)) {
+                        earliest = new AvailableSlot(doctor.getId(), date, LocalTime.ofSecondOfDay(minute * 60L));
+                        break;
+                    }
+                }
+            }
+            if (earliest != null) {
+                return Optional.of(earliest);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Finds doctors matching every filter that have a free slot in the period, soonest slot first.
+     * Candidates come from the in-memory doctor index; days are then searched in order, so the
+     * search stops as soon as the requested page is filled
+     * @param specialty Specialty, or null for any
+     * @param name Name prefix, or null for any
+     * @param from Start of the time-of-day window
+     * @param to End of the time-of-day window; midnight means the end of the day
+     * @param date First day to search
+     * @param days Number of days to search
+     * @param page Page number, from 0
+     * @param size Page size
+     * @return The page, plus the first entry of the next page if there is one
+     */
+    public List<DoctorAvailability> discover(String specialty, String name, LocalTime from, LocalTime to,
+                                             LocalDate date, int days, int page, int size) {
+        List<DoctorSearchIndex.Candidate> remaining = doctorSearchIndex.filter(specialty, name, from, to, SLOT_MINUTES);
+        int wanted = page * size + size + 1;
+        int fromMinute = from.toSecondOfDay() / 60;
+        int toMinute = to.equals(LocalTime.MIDNIGHT) ? 24 * 60 : to.toSecondOfDay() / 60;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate first = date.isBefore(now.toLocalDate()) ? now.toLocalDate() : date;
+        LocalDate end = date.plusDays(days);
+        
+        List<AvailableSlot> found = new ArrayList<>();
+        for (LocalDate day = first; day.isBefore(end) && found.size() < wanted && remaining.isEmpty() == false; day = day.plusDays(1)) {
+            List<Long> doctorIds = new ArrayList<>(remaining.size());
+            for (DoctorSearchIndex.Candidate candidate : remaining) {
+                doctorIds.add(candidate.getDoctorId());
+            }
+            slotReservationEngine.preload(doctorIds, day, day.plusDays(1));
+            
+            // Slots that have already started today are not offered
+            int notBefore = day.equals(now.toLocalDate()) ? now.getHour() * 60 + now.getMinute() + 1 : 0;
+            int[] firstFree = slotReservationEngine.firstFreeSlots(remaining, day, SLOT_MINUTES, Math.max(fromMinute, notBefore), toMinute);
+            List<AvailableSlot> onDay = new ArrayList<>();
+            List<DoctorSearchIndex.Candidate> stillBooked = new ArrayList<>();
+            for (int i = 0; i < firstFree.length; i++) {
+                DoctorSearchIndex.Candidate candidate = remaining.get(i);
+                if (firstFree[i] >= 0) {
+                    onDay.add(new AvailableSlot(candidate.getDoctorId(), day, LocalTime.ofSecondOfDay(firstFree[i] * 60L)));
+                } else {
+                    stillBooked.add(candidate);
+                }
+            }
+            remaining = stillBooked;
+            
+            // Stable sort: doctors with the same slot stay in the index's name order
+            onDay.sort(Comparator.comparing(AvailableSlot::getTime));
+            found.addAll(onDay);
+        }
+        
+        if (found.size() <= page * size) {
+            return new ArrayList<>();
+        }
+        List<AvailableSlot> slots = found.subList(page * size, Math.min(found.size(), wanted));
+        List<Long> doctorIds = new ArrayList<>(slots.size());
+        for (AvailableSlot slot : slots) {
+            doctorIds.add(slot.getDoctorId());
+        }
+        Map<Long, Doctor> doctors = new HashMap<>();
+        for (Doctor doctor : doctorDirectory.getAll(doctorIds)) {
+            doctors.put(doctor.getId(), doctor);
+        }
+        List<DoctorAvailability> results = new ArrayList<>(slots.size());
+        for (AvailableSlot slot : slots) {
+            Doctor doctor = doctors.get(slot.getDoctorId());
+            if (doctor != null) {
+                results.add(new DoctorAvailability(doctor, slot));
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Validates doctor login credentials. Hashing is CPU-bound, so callers run this on the
+     * login executor through {@link LoginGate}. A password stored in an outdated form is
+     * rehashed after a successful check
      * @param email Doctor's email
      * @param password Doctor's password
      * @return Doctor object if credentials are valid, null otherwise
      */
     public Doctor validateDoctorLogin(String email, String password) {
-        Optional<Doctor> doctorOpt = doctorRepository.findByEmail(email);
-        if (doctorOpt.isPresent()) {
-            Doctor doctor = doctorOpt.get();
-            if (doctor.getPassword().equals(password)) {
-                return doctor;
+        if (email == null || password == null) {
+            return null;
+        }
+        // The doctor is serialized after the login executor returns, outside any session
+        Optional<Doctor> doctorOpt = doctorRepository.findWithAvailableTimesByEmail(email);
+        if (doctorOpt.isPresent() == false) {
+            loginGate.verifyUnknownAccount(password);
+            return null;
+        }
+        
+        Doctor doctor = doctorOpt.get();
+        if (passwordEncoder.matches(password, doctor.getPassword()) == false) {
+            return null;
+        }
+        if (passwordEncoder.upgradeEncoding(doctor.getPassword())) {
+            try {
+                doctor.setPassword(passwordEncoder.encode(password));
+                doctor = saveDoctor(doctor);
+            } catch (RuntimeException e) {
+                // The login itself is valid; the rehash is retried next time
+                log.warn("Could not rehash the password of doctor {}", doctor.getId(), e);
             }
         }
-        return null;
+        return doctor;
     }
     
     /**
@@ -68,7 +247,30 @@ public class DoctorService {
      * @return Saved doctor
      */
     public Doctor saveDoctor(Doctor doctor) {
-        return doctorRepository.save(doctor);
+        Doctor savedDoctor = doctorRepository.save(doctor);
+        doctorDirectory.invalidate(savedDoctor.getId());
+        principalResolver.invalidate(savedDoctor.getEmail());
+        doctorSearchIndex.update(savedDoctor);
+        return savedDoctor;
+    }
+    
+    /**
+     * Finds doctor by ID through the doctor directory cache
+     * @param doctorId Doctor ID
+     * @return Optional Doctor
+     */
+    public Optional<Doctor> findById(Long doctorId) {
+        return doctorDirectory.get(doctorId);
+    }
+    
+    /**
+     * Loads a doctor that the caller is going to modify and save.
+     * Unlike {@link #findById(Long)} this never returns the shared directory instance
+     * @param doctorId Doctor ID
+     * @return Optional Doctor
+     */
+    public Optional<Doctor> findForUpdate(Long doctorId) {
+        return doctorRepository.findById(doctorId);
     }
     
     /**
@@ -85,23 +287,26 @@ public class DoctorService {
      * @param specialty Medical specialty
      * @return List of doctors with the specialty
      */
+    // Left on the primary: the result goes into the doctorQueries cache, which a lagging replica would fill with stale rows
     public List<Doctor> findBySpecialty(String specialty) {
         return doctorRepository.findBySpecialty(specialty);
     }
     
     /**
-     * Finds doctors by name
-     * @param name Doctor's name (first or last)
-     * @return List of doctors matching the name
+     * Finds doctors by name or specialty through the in-memory search index
+     * @param query Search text; every word must match part of a name or specialty
+     * @param limit Maximum number of results, or null for the default
+     * @return Doctors, best match first
      */
-    public List<Doctor> findByNameContaining(String name) {
-        return doctorRepository.findByNameContaining(name);
+    public List<Doctor> searchDoctors(String query, Integer limit) {
+        return doctorDirectory.getAll(doctorSearchIndex.search(query, limit));
     }
     
     /**
      * Gets all doctors
      * @return List of all doctors
      */
+    // Cached in doctorQueries as well, so also read from the primary
     public List<Doctor> getAllDoctors() {
         return doctorRepository.findAll();
     }
@@ -0,0 +1,151 @@
+package com.smartclinic.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.dto.AppointmentView;
+import com.smartclinic.dto.PatientView;
+import com.smartclinic.dto.PrescriptionView;
+import com.smartclinic.repository.AppointmentRepository;
+import com.smartclinic.repository.PatientRepository;
+import com.smartclinic.repository.PrescriptionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Streams appointments, prescriptions and patients as NDJSON or CSV.
+ * Rows are read through forward-only projection streams, so heap use does
+ * not depend on the number of rows exported.
+ */
+@Service
+public class ExportService {
+    
+    public static final List<String> TYPES = Arrays.asList("appointments", "prescriptions", "patients");
+    
+    public static final List<String> FORMATS = Arrays.asList("ndjson", "csv");
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+    
+    @Autowired
+    private PatientRepository patientRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    /**
+     * Writes every row of a data set to the output stream
+     * @param type One of {@link #TYPES}
+     * @param format One of {@link #FORMATS}
+     * @param out Destination stream; not closed
+     */
+    public void export(String type, String format, OutputStream out) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            boolean csv = "csv".equals(format);
+            switch (type) {
+                case "appointments":
+                    try (Stream<AppointmentView> rows = appointmentRepository.streamAllViews()) {
+                        write(rows, csv, out, new String[] {"id", "appointmentTime", "status", "notes", "doctorId",
+                                "doctorFirstName", "doctorLastName", "doctorSpecialty", "patientId", "patientFirstName", "patientLastName"},
+                                a -> new Object[] {a.getId(), a.getAppointmentTime(), a.getStatus(), a.getNotes(), a.getDoctorId(),
+                                        a.getDoctorFirstName(), a.getDoctorLastName(), a.getDoctorSpecialty(), a.getPatientId(),
+                                        a.getPatientFirstName(), a.getPatientLastName()});
+                    }
+                    break;
+                case "prescriptions":
+                    try (Stream<PrescriptionView> rows = prescriptionRepository.streamAllViews()) {
+                        write(rows, csv, out, new String[] {"id", "medicationName", "dosage", "instructions", "prescriptionDate",
+                                "doctorId", "doctorFirstName", "doctorLastName", "patientId", "patientFirstName", "patientLastName"},
+                                p -> new Object[] {p.getId(), p.getMedicationName(), p.getDosage(), p.getInstructions(),
+                                        p.getPrescriptionDate(), p.getDoctorId(), p.getDoctorFirstName(), p.getDoctorLastName(),
+                                        p.getPatientId(), p.getPatientFirstName(), p.getPatientLastName()});
+                    }
+                    break;
+                case "patients":
+                    try (Stream<PatientView> rows = patientRepository.streamAllViews()) {
+                        write(rows, csv, out, new String[] {"id", "firstName", "lastName", "email", "phoneNumber", "dateOfBirth", "address"},
+                                p -> new Object[] {p.getId(), p.getFirstName(), p.getLastName(), p.getEmail(), p.getPhoneNumber(),
+                                        p.getDateOfBirth(), p.getAddress()});
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown export type: " + type);
+            }
+        });
+    }
+    
+    private <T> void write(Stream<T> rows, boolean csv, OutputStream out, String[] header, Function<T, Object[]> columns) {
+        try {
+            OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+            if (csv) {
+                Writer writer = new OutputStreamWriter(buffered, StandardCharsets.UTF_8);
+                writeCsvLine(writer, header);
+                rows.forEach(row -> writeCsvLine(writer, columns.apply(row)));
+                writer.flush();
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(buffered);
+                generator.setRootValueSeparator(null);
+                rows.forEach(row -> {
+                    try {
+                        generator.writeObject(row);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.flush();
+            }
+            buffered.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static void writeCsvLine(Writer writer, Object[] values) {
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvField(values[i]));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
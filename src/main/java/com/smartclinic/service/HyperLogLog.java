@@ -0,0 +1,188 @@
+package com.smartclinic.service;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct-count sketch over long values.
+ * Sketches of the same precision merge by taking the register-wise maximum, so the sketch
+ * of a period is the merge of the sketches of its days. A sketch starts sparse, holding only
+ * the registers that were set, and switches to a dense register array once that is smaller.
+ * The relative standard error is about 1.04 / sqrt(2^precision).
+ */
+public final class HyperLogLog {
+    
+    // 2^-rank for every possible rank, so estimates do no floating-point exponentiation
+    private static final double[] INVERSE_POWERS = new double[66];
+    
+    static {
+        for (int rank = 0; rank < INVERSE_POWERS.length; rank++) {
+            INVERSE_POWERS[rank] = Math.scalb(1.0, -rank);
+        }
+    }
+    
+    private final int precision;
+    
+    private final int registerCount;
+    
+    // Dense registers, or null while sparse
+    private byte[] registers;
+    
+    // Sparse registers as (index << 8 | rank), sorted by index
+    private int[] sparse = new int[4];
+    
+    private int sparseSize;
+    
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+    }
+    
+    /**
+     * Adds a value to the sketch
+     * @param value Value, such as a patient ID
+     */
+    public synchronized void offer(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - precision));
+        // The sentinel bit caps the rank at 64 - precision + 1
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        setRegister(index, rank);
+    }
+    
+    /**
+     * Merges another sketch of the same precision into this one
+     * @param other Sketch to merge; left unchanged
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of different precision");
+        }
+        synchronized (other) {
+            synchronized (this) {
+                if (other.registers != null) {
+                    densify();
+                    for (int i = 0; i < registerCount; i++) {
+                        if (other.registers[i] > registers[i]) {
+                            registers[i] = other.registers[i];
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < other.sparseSize; i++) {
+                        setRegister(other.sparse[i] >>> 8, other.sparse[i] & 0xFF);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Estimates the number of distinct values added
+     * @return Estimated distinct count
+     */
+    public synchronized long estimate() {
+        int zeros = registerCount;
+        double sum;
+        if (registers == null) {
+            zeros -= sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += INVERSE_POWERS[sparse[i] & 0xFF];
+            }
+        } else {
+            zeros = 0;
+            sum = 0;
+            for (byte register : registers) {
+                if (register == 0) {
+                    zeros++;
+                }
+                sum += INVERSE_POWERS[register];
+            }
+        }
+        double estimate = alpha() * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && zeros > 0) {
+            // Linear counting is far more accurate for small cardinalities
+            estimate = registerCount * Math.log((double) registerCount / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    /**
+     * Empties the sketch so it can be reused, for example as a merge accumulator
+     */
+    public synchronized void clear() {
+        if (registers != null) {
+            Arrays.fill(registers, (byte) 0);
+        }
+        sparseSize = 0;
+    }
+    
+    private void setRegister(int index, int rank) {
+        if (registers != null) {
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+            }
+            return;
+        }
+        int position = Arrays.binarySearch(sparse, 0, sparseSize, index << 8);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        if (position < sparseSize && sparse[position] >>> 8 == index) {
+            if (rank > (sparse[position] & 0xFF)) {
+                sparse[position] = index << 8 | rank;
+            }
+            return;
+        }
+        // An int per sparse register; past a quarter of the registers the byte array is smaller
+        if (sparseSize >= registerCount / 4) {
+            densify();
+            setRegister(index, rank);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparse.length * 2);
+        }
+        System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+        sparse[position] = index << 8 | rank;
+        sparseSize++;
+    }
+    
+    private void densify() {
+        if (registers != null) {
+            return;
+        }
+        registers = new byte[registerCount];
+        for (int i = 0; i < sparseSize; i++) {
+            registers[sparse[i] >>> 8] = (byte) (sparse[i] & 0xFF);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+    
+    private double alpha() {
+        switch (registerCount) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+    
+    // 64-bit finalizer of MurmurHash3; consecutive ids come out evenly spread
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb53a4ea85b53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,499 @@
+package com.smartclinic.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartclinic.dto.ImportReport;
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.entity.Patient;
+import com.smartclinic.repository.DoctorRepository;
+import com.smartclinic.repository.PatientRepository;
+import com.smartclinic.security.PrincipalResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports doctors, patients or appointments from a CSV or NDJSON stream.
+ * Rows are read in chunks and validated in parallel; appointment references are
+ * resolved against in-memory email and id maps. Valid rows are handed to a single
+ * writer through a small bounded queue, so a slow database holds back the reader
+ * and memory stays flat however large the input is.
+ */
+@Service
+public class ImportService {
+    
+    public static final List<String> TYPES = Arrays.asList("doctors", "patients", "appointments");
+    
+    public static final List<String> FORMATS = Arrays.asList("csv", "ndjson");
+    
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+    
+    // Marks the end of the input on the writer queue
+    private static final Chunk END = new Chunk(0, Collections.emptyList());
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Autowired
+    private PatientRepository patientRepository;
+    
+    @Autowired
+    private BulkPersister bulkPersister;
+    
+    @Autowired
+    private PrincipalResolver principalResolver;
+    
+    @Autowired
+    private DoctorSearchIndex doctorSearchIndex;
+    
+    @Autowired
+    private SlotReservationEngine slotReservationEngine;
+    
+    @Autowired
+    private AppointmentReportService appointmentReportService;
+    
+    @Autowired
+    private UniquePatientAnalytics uniquePatientAnalytics;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    @Qualifier("importWriterExecutor")
+    private AsyncTaskExecutor importWriterExecutor;
+    
+    @Value("${clinic.import.chunk-size:10000}")
+    private int chunkSize;
+    
+    @Value("${clinic.import.queue-capacity:4}")
+    private int queueCapacity;
+    
+    @Value("${clinic.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+    
+    /**
+     * Imports every row of the input
+     * @param type One of {@link #TYPES}
+     * @param format One of {@link #FORMATS}
+     * @param in Input stream; closed when the import ends
+     * @return Report of imported and rejected rows
+     * @throws IOException if the input cannot be read
+     */
+    public ImportReport importRecords(String type, String format, InputStream in) throws IOException {
+        ImportReport report = new ImportReport(type, maxReportedErrors);
+        RowMapper mapper = mapperFor(type);
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Future<?> writer = importWriterExecutor.submit(() -> write(queue, report));
+        
+        try (RecordReader reader = RecordReader.open(format, in, objectMapper)) {
+            List<Row> rows = new ArrayList<>(chunkSize);
+            Map<String, String> record;
+            while ((record = reader.next()) != null) {
+                rows.add(new Row(reader.recordLine(), record));
+                if (rows.size() == chunkSize) {
+                    enqueue(queue, writer, validate(rows, mapper, report));
+                    rows = new ArrayList<>(chunkSize);
+                }
+            }
+            if (rows.isEmpty() == false) {
+                enqueue(queue, writer, validate(rows, mapper, report));
+            }
+        } catch (IOException | RuntimeException e) {
+            writer.cancel(true);
+            throw e;
+        }
+        
+        enqueue(queue, writer, END);
+        try {
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import writer failed", e.getCause());
+        }
+        log.info("Imported {} of {} {} ({} rejected)", report.getRowsImported(), report.getRowsRead(), type, report.getRowsRejected());
+        return report;
+    }
+    
+    /**
+     * Maps and validates a chunk of rows in parallel, then drops duplicates in input order
+     * @param rows Rows read
+     * @param mapper Row mapper for the import type
+     * @param report Import report
+     * @return Chunk of valid entities
+     */
+    private Chunk validate(List<Row> rows, RowMapper mapper, ImportReport report) {
+        report.addRead(rows.size());
+        List<Object> mapped = rows.parallelStream().map(row -> {
+            try {
+                Object entity = mapper.map(row.values);
+                Set<ConstraintViolation<Object>> violations = validator.validate(entity);
+                if (violations.isEmpty() == false) {
+                    return new RowError(violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+                }
+                return entity;
+            } catch (RuntimeException e) {
+                return new RowError(e.getMessage());
+            }
+        }).collect(Collectors.toList());
+        
+        List<Object> entities = new ArrayList<>(mapped.size());
+        for (int i = 0; i < mapped.size(); i++) {
+            Object result = mapped.get(i);
+            String error = result instanceof RowError ? ((RowError) result).message : mapper.accept(result);
+            if (error != null) {
+                report.reject(rows.get(i).line, 1, error);
+            } else {
+                entities.add(result);
+            }
+        }
+        return new Chunk(rows.get(0).line, entities);
+    }
+    
+    private void enqueue(BlockingQueue<Chunk> queue, Future<?> writer, Chunk chunk) {
+        try {
+            // Back off while the writer is behind, but stop if it has died
+            while (queue.offer(chunk, 1, TimeUnit.SECONDS) == false) {
+                if (writer.isDone()) {
+                    writer.get();
+                    throw new IllegalStateException("Import writer stopped");
+                }
+            }
+        } catch (InterruptedException e) {
+            writer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import writer failed", e.getCause());
+        }
+    }
+    
+    private void write(BlockingQueue<Chunk> queue, ImportReport report) {
+        try {
+            Chunk chunk;
+            while ((chunk = queue.take()) != END) {
+                if (chunk.entities.isEmpty()) {
+                    continue;
+                }
+                try {
+                    report.addImported(bulkPersister.persistAll(chunk.entities));
+                    afterWrite(chunk.entities);
+                } catch (RuntimeException e) {
+                    // BulkPersister rolled this chunk back; keep going with the next one
+                    log.warn("Import chunk starting at line {} failed", chunk.firstLine, e);
+                    report.reject(chunk.firstLine, chunk.entities.size(), "Chunk of " + chunk.entities.size()
+                            + " rows starting at this line was not written: " + rootMessage(e));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Brings in-memory state up to date with rows that were just written
+     * @param entities Written entities
+     */
+    private void afterWrite(List<Object> entities) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Appointment> appointments = new ArrayList<>();
+        for (Object entity : entities) {
+            if (entity instanceof Doctor) {
+                principalResolver.invalidate(((Doctor) entity).getEmail());
+                doctorSearchIndex.update((Doctor) entity);
+            } else if (entity instanceof Patient) {
+                principalResolver.invalidate(((Patient) entity).getEmail());
+            } else if (entity instanceof Appointment) {
+                Appointment appointment = (Appointment) entity;
+                appointments.add(appointment);
+                if (appointment.getAppointmentTime().isAfter(now) && "CANCELLED".equals(appointment.getStatus()) == false) {
+                    slotReservationEngine.markBooked(appointment.getDoctor().getId(), appointment.getAppointmentTime());
+                }
+            }
+        }
+        if (appointments.isEmpty() == false) {
+            uniquePatientAnalytics.recordImported(appointments);
+            try {
+                appointmentReportService.recordImported(appointments);
+            } catch (RuntimeException e) {
+                // The rows are written; only the report counts lag until the rollups are rebuilt
+                log.error("Could not update appointment rollups for {} imported appointments", appointments.size(), e);
+            }
+        }
+    }
+    
+    private RowMapper mapperFor(String type) {
+        switch (type) {
+            case "doctors":
+                return new DoctorMapper(loadEmails(doctorRepository.findAllEmailsAndIds()), passwordEncoder);
+            case "patients":
+                return new PatientMapper(loadEmails(patientRepository.findAllEmailsAndIds()), passwordEncoder);
+            case "appointments":
+                return new AppointmentMapper(
+                        loadEmails(doctorRepository.findAllEmailsAndIds()),
+                        loadEmails(patientRepository.findAllEmailsAndIds()));
+            default:
+                throw new IllegalArgumentException("Unknown import type: " + type);
+        }
+    }
+    
+    private static Map<String, Long> loadEmails(List<Object[]> rows) {
+        Map<String, Long> ids = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            ids.put(((String) row[0]).toLowerCase(), (Long) row[1]);
+        }
+        return ids;
+    }
+    
+    private static String required(Map<String, String> values, String field) {
+        String value = values.get(field);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value.trim();
+    }
+    
+    private static <T> T parse(Map<String, String> values, String field, Function<String, T> parser) {
+        String value = required(values, field);
+        try {
+            return parser.apply(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " is not valid: " + value);
+        }
+    }
+    
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null && e.getCause() != e) {
+            e = e.getCause();
+        }
+        return e.getMessage();
+    }
+    
+    /**
+     * Turns a record into an entity. {@link #map} runs in parallel and must not touch shared
+     * mutable state; {@link #accept} runs in input order and can check uniqueness
+     */
+    private interface RowMapper {
+        
+        Object map(Map<String, String> values);
+        
+        default String accept(Object entity) {
+            return null;
+        }
+    }
+    
+    /**
+     * Rejects emails that are already registered or appear earlier in the input
+     */
+    private abstract static class AccountMapper implements RowMapper {
+        
+        private static final String BCRYPT_PREFIX = "{bcrypt}$2";
+        
+        private final Set<String> emails;
+        
+        private final PasswordEncoder passwordEncoder;
+        
+        AccountMapper(Map<String, Long> existing, PasswordEncoder passwordEncoder) {
+            this.emails = new HashSet<>(existing.keySet());
+            this.passwordEncoder = passwordEncoder;
+        }
+        
+        String acceptEmail(String email) {
+            return emails.add(email.toLowerCase()) ? null : "Email already exists: " + email;
+        }
+        
+        /**
+         * Hashes a plain-text password; values exported as "{bcrypt}..." hashes are kept as they are
+         */
+        String hashPassword(String password) {
+            if (password == null || password.isEmpty() || password.startsWith(BCRYPT_PREFIX)) {
+                return password;
+            }
+            return passwordEncoder.encode(password);
+        }
+    }
+    
+    private static final class DoctorMapper extends AccountMapper {
+        
+        DoctorMapper(Map<String, Long> existing, PasswordEncoder passwordEncoder) {
+            super(existing, passwordEncoder);
+        }
+        
+        @Override
+        public Object map(Map<String, String> values) {
+            Doctor doctor = new Doctor();
+            doctor.setFirstName(values.get("firstName"));
+            doctor.setLastName(values.get("lastName"));
+            doctor.setEmail(required(values, "email"));
+            doctor.setPassword(hashPassword(values.get("password")));
+            doctor.setSpecialty(values.get("specialty"));
+            doctor.setPhoneNumber(values.get("phoneNumber"));
+            doctor.setAvailableStartTime(parse(values, "availableStartTime", LocalTime::parse));
+            doctor.setAvailableEndTime(parse(values, "availableEndTime", LocalTime::parse));
+            if (doctor.getAvailableEndTime().isAfter(doctor.getAvailableStartTime()) == false) {
+                throw new IllegalArgumentException("availableEndTime must be after availableStartTime");
+            }
+            return doctor;
+        }
+        
+        @Override
+        public String accept(Object entity) {
+            return acceptEmail(((Doctor) entity).getEmail());
+        }
+    }
+    
+    private static final class PatientMapper extends AccountMapper {
+        
+        PatientMapper(Map<String, Long> existing, PasswordEncoder passwordEncoder) {
+            super(existing, passwordEncoder);
+        }
+        
+        @Override
+        public Object map(Map<String, String> values) {
+            Patient patient = new Patient();
+            patient.setFirstName(values.get("firstName"));
+            patient.setLastName(values.get("lastName"));
+            patient.setEmail(required(values, "email"));
+            patient.setPassword(hashPassword(values.get("password")));
+            patient.setPhoneNumber(values.get("phoneNumber"));
+            patient.setDateOfBirth(parse(values, "dateOfBirth", LocalDate::parse));
+            patient.setAddress(values.get("address"));
+            return patient;
+        }
+        
+        @Override
+        public String accept(Object entity) {
+            return acceptEmail(((Patient) entity).getEmail());
+        }
+    }
+    
+    /**
+     * Resolves the doctor and patient of each appointment by email or id.
+     * References become id-only entities, so writing them loads nothing
+     */
+    private static final class AppointmentMapper implements RowMapper {
+        
+        private final Map<String, Long> doctorIds;
+        
+        private final Map<String, Long> patientIds;
+        
+        private final Set<Long> knownDoctorIds;
+        
+        private final Set<Long> knownPatientIds;
+        
+        AppointmentMapper(Map<String, Long> doctorIds, Map<String, Long> patientIds) {
+            this.doctorIds = doctorIds;
+            this.patientIds = patientIds;
+            this.knownDoctorIds = new HashSet<>(doctorIds.values());
+            this.knownPatientIds = new HashSet<>(patientIds.values());
+        }
+        
+        @Override
+        public Object map(Map<String, String> values) {
+            Doctor doctor = new Doctor();
+            doctor.setId(resolve(values, "doctor", doctorIds, knownDoctorIds));
+            Patient patient = new Patient();
+            patient.setId(resolve(values, "patient", patientIds, knownPatientIds));
+            
+            Appointment appointment = new Appointment();
+            appointment.setDoctor(doctor);
+            appointment.setPatient(patient);
+            appointment.setAppointmentTime(parse(values, "appointmentTime", LocalDateTime::parse));
+            if (values.get("status") != null) {
+                appointment.setStatus(values.get("status").trim().toUpperCase());
+            }
+            appointment.setNotes(values.get("notes"));
+            return appointment;
+        }
+        
+        private static Long resolve(Map<String, String> values, String name, Map<String, Long> byEmail, Set<Long> known) {
+            String email = values.get(name + "Email");
+            if (email != null) {
+                Long id = byEmail.get(email.trim().toLowerCase());
+                if (id == null) {
+                    throw new IllegalArgumentException("Unknown " + name + " email: " + email);
+                }
+                return id;
+            }
+            Long id;
+            try {
+                id = Long.valueOf(required(values, name + "Id"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + "Id is not valid: " + values.get(name + "Id"));
+            }
+            if (known.contains(id) == false) {
+                throw new IllegalArgumentException("Unknown " + name + " id: " + id);
+            }
+            return id;
+        }
+    }
+    
+    private static final class Row {
+        
+        final long line;
+        
+        final Map<String, String> values;
+        
+        Row(long line, Map<String, String> values) {
+            this.line = line;
+            this.values = values;
+        }
+    }
+    
+    private static final class RowError {
+        
+        final String message;
+        
+        RowError(String message) {
+            this.message = message;
+        }
+    }
+    
+    private static final class Chunk {
+        
+        final long firstLine;
+        
+        final List<Object> entities;
+        
+        Chunk(long firstLine, List<Object> entities) {
+            this.firstLine = firstLine;
+            this.entities = entities;
+        }
+    }
+}
@@ -2,8 +2,14 @@ package com.smartclinic.service;
 
 import com.smartclinic.entity.Patient;
 import com.smartclinic.repository.PatientRepository;
+import com.smartclinic.security.LoginGate;
+import com.smartclinic.security.PrincipalResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,24 +17,52 @@ import java.util.Optional;
 @Service
 public class PatientService {
     
+    private static final Logger log = LoggerFactory.getLogger(PatientService.class);
+    
     @Autowired
     private PatientRepository patientRepository;
     
+    @Autowired
+    private PrincipalResolver principalResolver;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private LoginGate loginGate;
+    
     /**
-     * Validates patient login credentials
+     * Validates patient login credentials. Hashing is CPU-bound, so callers run this on the
+     * login executor through {@link LoginGate}. A password stored in an outdated form is
+     * rehashed after a successful check
      * @param email Patient's email
      * @param password Patient's password
      * @return Patient object if credentials are valid, null otherwise
      */
     public Patient validatePatientLogin(String email, String password) {
+        if (email == null || password == null) {
+            return null;
+        }
         Optional<Patient> patientOpt = patientRepository.findByEmail(email);
-        if (patientOpt.isPresent()) {
-            Patient patient = patientOpt.get();
-            if (patient.getPassword().equals(password)) {
-                return patient;
+        if (patientOpt.isPresent() == false) {
+            loginGate.verifyUnknownAccount(password);
+            return null;
+        }
+        
+        Patient patient = patientOpt.get();
+        if (passwordEncoder.matches(password, patient.getPassword()) == false) {
+            return null;
+        }
+        if (passwordEncoder.upgradeEncoding(patient.getPassword())) {
+            try {
+                patient.setPassword(passwordEncoder.encode(password));
+                patient = savePatient(patient);
+            } catch (RuntimeException e) {
+                // The login itself is valid; the rehash is retried next time
+                log.warn("Could not rehash the password of patient {}", patient.getId(), e);
             }
         }
-        return null;
+        return patient;
     }
     
     /**
@@ -37,7 +71,9 @@ public class PatientService {
      * @return Saved patient
      */
     public Patient savePatient(Patient patient) {
-        return patientRepository.save(patient);
+        Patient savedPatient = patientRepository.save(patient);
+        principalResolver.invalidate(savedPatient.getEmail());
+        return savedPatient;
     }
     
     /**
@@ -62,6 +98,7 @@ public class PatientService {
      * Gets all patients
      * @return List of all patients
      */
+    @Transactional(readOnly = true)
     public List<Patient> getAllPatients() {
         return patientRepository.findAll();
     }
@@ -92,4 +129,13 @@ public class PatientService {
     public Optional<Patient> findById(Long id) {
         return patientRepository.findById(id);
     }
+    
+    /**
+     * Gets a reference to a patient known to exist, without loading it
+     * @param id Patient ID
+     * @return Patient reference
+     */
+    public Patient getReference(Long id) {
+        return patientRepository.getReferenceById(id);
+    }
 }
@@ -1,11 +1,18 @@
 package com.smartclinic.service;
 
+import com.smartclinic.dto.KeysetCursor;
+import com.smartclinic.dto.KeysetPage;
+import com.smartclinic.dto.KeysetPageRequest;
+import com.smartclinic.dto.PrescriptionView;
 import com.smartclinic.entity.Prescription;
 import com.smartclinic.entity.Doctor;
 import com.smartclinic.entity.Patient;
 import com.smartclinic.repository.PrescriptionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -31,15 +38,32 @@ public class PrescriptionService {
      * @param doctor Doctor entity
      * @return List of prescriptions for the doctor
      */
+    @Transactional(readOnly = true)
     public List<Prescription> getPrescriptionsForDoctor(Doctor doctor) {
         return prescriptionRepository.findByDoctor(doctor);
     }
     
+    /**
+     * Gets one keyset page of a doctor's prescriptions as projections
+     * @param doctorId Doctor ID
+     * @param page Page request
+     * @return Page of prescriptions
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<PrescriptionView> getPrescriptionPageForDoctor(Long doctorId, KeysetPageRequest page) {
+        Pageable limit = PageRequest.of(0, page.getSize() + 1);
+        List<PrescriptionView> rows = page.isDescending()
+                ? prescriptionRepository.findViewsByDoctorBefore(doctorId, page.getFrom(), page.getTo(), page.getBoundaryTime(), page.getBoundaryId(), limit)
+                : prescriptionRepository.findViewsByDoctorAfter(doctorId, page.getFrom(), page.getTo(), page.getBoundaryTime(), page.getBoundaryId(), limit);
+        return KeysetPage.of(rows, page.getSize(), p -> new KeysetCursor(p.getPrescriptionDate(), p.getId()));
+    }
+    
     /**
      * Gets all prescriptions for a patient
      * @param patient Patient entity
      * @return List of prescriptions for the patient
      */
+    @Transactional(readOnly = true)
     public List<Prescription> getPrescriptionsForPatient(Patient patient) {
         return prescriptionRepository.findByPatient(patient);
     }
@@ -50,6 +74,7 @@ public class PrescriptionService {
      * @param patient Patient entity
      * @return List of prescriptions for the doctor and patient
      */
+    @Transactional(readOnly = true)
     public List<Prescription> getPrescriptionsForDoctorAndPatient(Doctor doctor, Patient patient) {
         return prescriptionRepository.findByDoctorAndPatient(doctor, patient);
     }
@@ -60,6 +85,7 @@ public class PrescriptionService {
      * @param startDate Start date for filtering
      * @return List of recent prescriptions for the patient
      */
+    @Transactional(readOnly = true)
     public List<Prescription> getRecentPrescriptionsForPatient(Patient patient, LocalDateTime startDate) {
         return prescriptionRepository.findByPatientAndPrescriptionDateAfter(patient, startDate);
     }
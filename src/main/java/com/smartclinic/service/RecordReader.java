@@ -0,0 +1,192 @@
+package com.smartclinic.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads import records one at a time from a CSV (with header row) or NDJSON stream.
+ * Each record is a map of field name to text value; absent and empty fields are null.
+ */
+abstract class RecordReader implements Closeable {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    protected final BufferedReader reader;
+    
+    protected long line;
+    
+    private long recordLine;
+    
+    RecordReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    
+    static RecordReader open(String format, InputStream in, ObjectMapper objectMapper) {
+        return "csv".equals(format) ? new Csv(in) : new Ndjson(in, objectMapper);
+    }
+    
+    /**
+     * Reads the next record
+     * @return Field values by name, or null at the end of the input
+     * @throws IOException if the input cannot be read or a record is malformed
+     */
+    Map<String, String> next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.trim().isEmpty());
+        recordLine = line;
+        return parse(text);
+    }
+    
+    /**
+     * Gets the line number on which the last record returned by {@link #next()} starts
+     * @return 1-based line number
+     */
+    long recordLine() {
+        return recordLine;
+    }
+    
+    protected abstract Map<String, String> parse(String text) throws IOException;
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    /**
+     * RFC 4180 style CSV; quoted fields may contain commas, doubled quotes and line breaks
+     */
+    private static final class Csv extends RecordReader {
+        
+        private List<String> header;
+        
+        Csv(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        Map<String, String> next() throws IOException {
+            if (header == null) {
+                Map<String, String> names = super.next();
+                if (names == null) {
+                    return null;
+                }
+            }
+            return super.next();
+        }
+        
+        @Override
+        protected Map<String, String> parse(String text) throws IOException {
+            List<String> values = split(text);
+            if (header == null) {
+                header = new ArrayList<>();
+                for (String name : values) {
+                    header.add(name.trim());
+                }
+                return new HashMap<>();
+            }
+            if (values.size() != header.size()) {
+                throw new IOException("Line " + recordLine() + ": expected " + header.size() + " fields but found " + values.size());
+            }
+            Map<String, String> record = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                record.put(header.get(i), emptyToNull(values.get(i)));
+            }
+            return record;
+        }
+        
+        private List<String> split(String text) throws IOException {
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (quoted == false) {
+                        break;
+                    }
+                    // A quoted field continues on the next physical line
+                    text = reader.readLine();
+                    line++;
+                    if (text == null) {
+                        throw new IOException("Line " + recordLine() + ": unterminated quoted field");
+                    }
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < text.length() && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            values.add(field.toString());
+            return values;
+        }
+    }
+    
+    /**
+     * One JSON object per line
+     */
+    private static final class Ndjson extends RecordReader {
+        
+        private final ObjectMapper objectMapper;
+        
+        Ndjson(InputStream in, ObjectMapper objectMapper) {
+            super(in);
+            this.objectMapper = objectMapper;
+        }
+        
+        @Override
+        protected Map<String, String> parse(String text) throws IOException {
+            JsonNode node = objectMapper.readTree(text);
+            if (node == null || node.isObject() == false) {
+                throw new IOException("Line " + recordLine() + ": expected a JSON object");
+            }
+            Map<String, String> record = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                record.put(field.getKey(), field.getValue().isNull() ? null : emptyToNull(field.getValue().asText()));
+            }
+            return record;
+        }
+    }
+}
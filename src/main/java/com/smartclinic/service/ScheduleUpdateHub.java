@@ -0,0 +1,143 @@
+package com.smartclinic.service;
+
+import com.smartclinic.dto.ScheduleUpdate;
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.entity.Patient;
+import com.smartclinic.event.AppointmentChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PostConstruct;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans appointment changes out to the doctors' open portals. Each doctor has one multicast sink
+ * that all of the doctor's connections subscribe to, so a change is looked up once and handed to
+ * every connection without touching the database again. A connection that falls too far behind
+ * is ended rather than buffered without bound; the portal reconnects and reloads its list.
+ */
+@Component
+public class ScheduleUpdateHub implements MeterBinder {
+    
+    private static final Logger log = LoggerFactory.getLogger(ScheduleUpdateHub.class);
+    
+    @Autowired
+    private AppointmentService appointmentService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${clinic.schedule-updates.buffer-size:256}")
+    private int bufferSize;
+    
+    // Doctor ID -> sink of the doctor's connections; a sink without subscribers is a few small objects
+    private final ConcurrentMap<Long, Sinks.Many<ScheduleUpdate>> sinks = new ConcurrentHashMap<>();
+    
+    private final AtomicInteger connections = new AtomicInteger();
+    
+    private final AtomicLong pushed = new AtomicLong();
+    
+    private TransactionTemplate lookupTemplate;
+    
+    @PostConstruct
+    void init() {
+        // Runs after the change's own transaction committed, so the lookup needs a new one
+        lookupTemplate = new TransactionTemplate(transactionManager);
+        lookupTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        lookupTemplate.setReadOnly(true);
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("clinic.schedule.updates.connections", connections, AtomicInteger::get)
+                .description("Open doctor portal connections receiving schedule updates")
+                .register(registry);
+        FunctionCounter.builder("clinic.schedule.updates.pushed", pushed, AtomicLong::get)
+                .description("Schedule updates pushed to doctor portals since startup")
+                .register(registry);
+    }
+    
+    /**
+     * Subscribes to a doctor's schedule changes
+     * @param doctorId Doctor ID
+     * @return Endless stream of the doctor's schedule changes from now on
+     */
+    public Flux<ScheduleUpdate> updatesFor(Long doctorId) {
+        Sinks.Many<ScheduleUpdate> sink = sinks.computeIfAbsent(doctorId,
+                id -> Sinks.many().multicast().directBestEffort());
+        return sink.asFlux()
+                .onBackpressureBuffer(bufferSize)
+                .doOnSubscribe(subscription -> connections.incrementAndGet())
+                .doFinally(signal -> connections.decrementAndGet());
+    }
+    
+    /**
+     * Pushes a committed appointment change to the doctor's connections, if there are any.
+     * A failure is logged rather than passed on, so it never fails the change itself
+     * @param event Appointment change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        Sinks.Many<ScheduleUpdate> sink = sinks.get(event.getDoctorId());
+        if (sink == null || sink.currentSubscriberCount() == 0) {
+            return;
+        }
+        
+        ScheduleUpdate update;
+        try {
+            update = toUpdate(event);
+        } catch (RuntimeException e) {
+            log.error("Could not build schedule update for appointment {}", event.getAppointmentId(), e);
+            return;
+        }
+        // Changes for one doctor can commit on several threads at once; a sink takes one at a time
+        synchronized (sink) {
+            if (sink.tryEmitNext(update).isSuccess()) {
+                pushed.incrementAndGet();
+            }
+        }
+    }
+    
+    private ScheduleUpdate toUpdate(AppointmentChangedEvent event) {
+        if (event.isDeleted()) {
+            return new ScheduleUpdate(ScheduleUpdate.DELETED, event.getAppointmentId(), null, null, null,
+                    event.getPreviousTime(), event.getPatientId(), null, null);
+        }
+        
+        String type;
+        if (event.isCreated()) {
+            type = ScheduleUpdate.BOOKED;
+        } else if ("CANCELLED".equals(event.getStatus()) && "CANCELLED".equals(event.getPreviousStatus()) == false) {
+            type = ScheduleUpdate.CANCELLED;
+        } else {
+            type = ScheduleUpdate.UPDATED;
+        }
+        // Portals show the patient's name and the notes, which the event does not carry
+        return lookupTemplate.execute(status -> {
+            Optional<Appointment> appointmentOpt = appointmentService.getAppointmentById(event.getAppointmentId());
+            String notes = appointmentOpt.isPresent() ? appointmentOpt.get().getNotes() : null;
+            Patient patient = appointmentOpt.isPresent() ? appointmentOpt.get().getPatient() : null;
+            return new ScheduleUpdate(type, event.getAppointmentId(), event.getTime(), event.getStatus(), notes,
+                    event.getPreviousTime(), event.getPatientId(),
+                    patient == null ? null : patient.getFirstName(),
+                    patient == null ? null : patient.getLastName());
+        });
+    }
+}
@@ -0,0 +1,367 @@
+package com.smartclinic.service;
+
+import com.smartclinic.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory slot reservation engine.
+ * Keeps one minute-resolution bitset per doctor and day; an appointment occupies
+ * {@link #SLOT_MINUTES} minutes from its start, which are claimed with compare-and-set
+ * so concurrent bookings never double-book a doctor.
+ * A doctor's day is loaded from the database once, on first use.
+ */
+@Service
+public class SlotReservationEngine {
+    
+    static final int MINUTES_PER_DAY = 24 * 60;
+    
+    /** Length of an appointment; availability is offered in slots of this length too */
+    static final int SLOT_MINUTES = 60;
+    
+    private static final int WORDS_PER_DAY = (MINUTES_PER_DAY + 63) / 64;
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    private final ConcurrentMap<Long, ConcurrentMap<LocalDate, DaySlots>> partitions = new ConcurrentHashMap<>();
+    
+    /**
+     * Atomically reserves the slot starting at a time, so that no other appointment of the
+     * doctor overlaps it
+     * @param doctorId Doctor ID
+     * @param time Appointment time (minute resolution)
+     * @return true if the slot was free and is now reserved, false if it is taken or already past
+     */
+    public boolean reserve(Long doctorId, LocalDateTime time) {
+        return reserveExcept(doctorId, time, null);
+    }
+    
+    /**
+     * Atomically reserves the part of a slot that a slot the caller already holds does not cover,
+     * as when an appointment moves to an overlapping time
+     * @param doctorId Doctor ID
+     * @param time Appointment time (minute resolution)
+     * @param held Time of the doctor's slot the caller holds, or null
+     * @return true if that part was free and is now reserved, false if it is taken or already past
+     */
+    public boolean reserveExcept(Long doctorId, LocalDateTime time, LocalDateTime held) {
+        // Past days are dropped from memory, so a claim on one would not be seen by the next
+        if (time.isBefore(LocalDateTime.now())) {
+            return false;
+        }
+        int[] range = rangeExcept(time, held);
+        return day(doctorId, time.toLocalDate()).claim(range[0], range[1]);
+    }
+    
+    /**
+     * Releases a previously reserved slot
+     * @param doctorId Doctor ID
+     * @param time Appointment time (minute resolution)
+     */
+    public void release(Long doctorId, LocalDateTime time) {
+        releaseExcept(doctorId, time, null);
+    }
+    
+    /**
+     * Releases the part of a previously reserved slot that another slot the caller keeps does not cover
+     * @param doctorId Doctor ID
+     * @param time Appointment time (minute resolution)
+     * @param kept Time of the doctor's slot the caller keeps, or null
+     */
+    public void releaseExcept(Long doctorId, LocalDateTime time, LocalDateTime kept) {
+        ConcurrentMap<LocalDate, DaySlots> days = partitions.get(doctorId);
+        if (days == null) {
+            return;
+        }
+        DaySlots slots = days.get(time.toLocalDate());
+        if (slots != null) {
+            int[] range = rangeExcept(time, kept);
+            slots.free(range[0], range[1]);
+        }
+    }
+    
+    /**
+     * Marks a slot as booked for an appointment written without going through {@link #reserve},
+     * such as a bulk import. Days that are not in memory yet are left alone; they read the
+     * appointment from the database when first used
+     * @param doctorId Doctor ID
+     * @param time Appointment time (minute resolution)
+     */
+    public void markBooked(Long doctorId, LocalDateTime time) {
+        ConcurrentMap<LocalDate, DaySlots> days = partitions.get(doctorId);
+        if (days == null) {
+            return;
+        }
+        DaySlots slots = days.get(time.toLocalDate());
+        if (slots != null) {
+            int minute = minuteOfDay(time);
+            slots.set(minute, slotEnd(minute));
+        }
+    }
+    
+    /**
+     * Checks whether a minute of a doctor's day is taken by a reserved slot
+     * @param doctorId Doctor ID
+     * @param time Time (minute resolution)
+     * @return true if reserved, false otherwise
+     */
+    public boolean isReserved(Long doctorId, LocalDateTime time) {
+        return day(doctorId, time.toLocalDate()).isSet(minuteOfDay(time));
+    }
+    
+    /**
+     * Checks whether a doctor has no booking in a range of the day
+     * @param doctorId Doctor ID
+     * @param date Day to check
+     * @param fromMinute First minute of the range (inclusive)
+     * @param toMinute Last minute of the range (exclusive)
+     * @return true if no minute in the range is reserved
+     */
+    public boolean isRangeFree(Long doctorId, LocalDate date, int fromMinute, int toMinute) {
+        return day(doctorId, date).isRangeClear(fromMinute, Math.min(toMinute, MINUTES_PER_DAY));
+    }
+    
+    /**
+     * Finds each candidate's first free slot of the day, scanning working hours in fixed steps.
+     * One call covers every candidate, instead of one {@link #isRangeFree} call per doctor and slot
+     * @param candidates Doctors with their working hours
+     * @param date Day to check
+     * @param slotMinutes Slot length; the last slot is cut short at the end of working hours
+     * @param fromMinute Earliest slot start accepted
+     * @param toMinute Latest slot end accepted
+     * @return Start minute of each candidate's first free slot, or -1 where there is none
+     */
+    public int[] firstFreeSlots(List<DoctorSearchIndex.Candidate> candidates, LocalDate date, int slotMinutes,
+                                int fromMinute, int toMinute) {
+        int[] firstFree = new int[candidates.size()];
+        for (int i = 0; i < firstFree.length; i++) {
+            DoctorSearchIndex.Candidate candidate = candidates.get(i);
+            DaySlots slots = day(candidate.getDoctorId(), date);
+            firstFree[i] = -1;
+            for (int minute = candidate.getStartMinute(); minute < candidate.getEndMinute(); minute += slotMinutes) {
+                int slotEnd = Math.min(minute + slotMinutes, candidate.getEndMinute());
+                if (slotEnd > toMinute) {
+                    break;
+                }
+                if (minute >= fromMinute && slots.isRangeClear(minute, Math.min(slotEnd, MINUTES_PER_DAY))) {
+                    firstFree[i] = minute;
+                    break;
+                }
+            }
+        }
+        return firstFree;
+    }
+    
+    /**
+     * Loads the bookings of many doctors over a date range with a single query,
+     * so that multi-doctor availability searches do not hydrate day by day
+     * @param doctorIds Doctor IDs
+     * @param from First day (inclusive)
+     * @param to Last day (exclusive)
+     */
+    public void preload(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+        // Days already in memory are up to date; only query for doctors with a day missing
+        List<Long> missing = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            ConcurrentMap<LocalDate, DaySlots> days = partitions.get(doctorId);
+            for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+                DaySlots slots = days == null ? null : days.get(date);
+                if (slots == null || slots.loaded == false) {
+                    missing.add(doctorId);
+                    break;
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        doctorIds = missing;
+        
+        Map<Long, Map<LocalDate, List<LocalDateTime>>> booked = new HashMap<>();
+        for (Object[] row : appointmentRepository.findBookedTimesForDoctors(doctorIds, from.atStartOfDay(), to.atStartOfDay())) {
+            LocalDateTime time = (LocalDateTime) row[1];
+            booked.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .computeIfAbsent(time.toLocalDate(), d -> new ArrayList<>())
+                    .add(time);
+        }
+        
+        for (Long doctorId : doctorIds) {
+            ConcurrentMap<LocalDate, DaySlots> days = partitions.computeIfAbsent(doctorId, id -> new ConcurrentHashMap<>());
+            Map<LocalDate, List<LocalDateTime>> doctorBookings = booked.getOrDefault(doctorId, new HashMap<>());
+            for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+                DaySlots slots = days.computeIfAbsent(date, d -> new DaySlots());
+                slots.loadFrom(doctorBookings.getOrDefault(date, Collections.emptyList()));
+            }
+        }
+    }
+    
+    private DaySlots day(Long doctorId, LocalDate date) {
+        ConcurrentMap<LocalDate, DaySlots> days = partitions.computeIfAbsent(doctorId, id -> new ConcurrentHashMap<>());
+        DaySlots slots = days.get(date);
+        if (slots == null) {
+            DaySlots created = new DaySlots();
+            slots = days.putIfAbsent(date, created);
+            if (slots == null) {
+                slots = created;
+                // Past days are never booked again; drop them while we are here, except the one just asked for
+                LocalDate today = LocalDate.now();
+                days.keySet().removeIf(d -> d.isBefore(today) && d.equals(date) == false);
+            }
+        }
+        slots.ensureLoaded(doctorId, date);
+        return slots;
+    }
+    
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+    
+    // A late appointment's slot is cut short at midnight
+    private static int slotEnd(int minute) {
+        return Math.min(minute + SLOT_MINUTES, MINUTES_PER_DAY);
+    }
+    
+    // The minutes of time's slot outside other's slot; slots are equally long but for the
+    // midnight cut, so an overlap is always at one end and what is left is a single range
+    private static int[] rangeExcept(LocalDateTime time, LocalDateTime other) {
+        int from = minuteOfDay(time);
+        int to = slotEnd(from);
+        if (other == null || other.toLocalDate().equals(time.toLocalDate()) == false) {
+            return new int[] {from, to};
+        }
+        int otherFrom = minuteOfDay(other);
+        int otherTo = slotEnd(otherFrom);
+        if (otherTo <= from || otherFrom >= to) {
+            return new int[] {from, to};
+        }
+        return otherFrom <= from ? new int[] {Math.max(from, otherTo), to} : new int[] {from, otherFrom};
+    }
+    
+    // Bits of a word that fall in [fromMinute, toMinute); the range must lie within that word
+    private static long mask(int fromMinute, int toMinute) {
+        int length = toMinute - fromMinute;
+        return length == 64 ? -1L : ((1L << length) - 1) << (fromMinute & 63);
+    }
+    
+    /**
+     * One doctor's day as a bitset of booked minutes
+     */
+    private final class DaySlots {
+        
+        private final AtomicLongArray bits = new AtomicLongArray(WORDS_PER_DAY);
+        
+        private volatile boolean loaded;
+        
+        void ensureLoaded(Long doctorId, LocalDate date) {
+            if (loaded) {
+                return;
+            }
+            synchronized (this) {
+                if (loaded == false) {
+                    loadFrom(appointmentRepository.findBookedTimesForDoctor(
+                            doctorId, date.atStartOfDay(), date.plusDays(1).atStartOfDay()));
+                }
+            }
+        }
+        
+        synchronized void loadFrom(List<LocalDateTime> booked) {
+            if (loaded) {
+                return;
+            }
+            // Appointments written before slots were claimed as ranges may overlap; all are kept
+            for (LocalDateTime time : booked) {
+                int minute = minuteOfDay(time);
+                set(minute, slotEnd(minute));
+            }
+            loaded = true;
+        }
+        
+        /**
+         * Claims every minute of a range, or none of them. Words are claimed in order; on a
+         * conflict the words already claimed are given back. Two overlapping claims racing
+         * can then both fail, but never both succeed
+         */
+        boolean claim(int fromMinute, int toMinute) {
+            if (isRangeClear(fromMinute, toMinute) == false) {
+                return false;
+            }
+            for (int minute = fromMinute; minute < toMinute; ) {
+                int word = minute >>> 6;
+                int wordEnd = Math.min((word + 1) << 6, toMinute);
+                long mask = mask(minute, wordEnd);
+                while (true) {
+                    long current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        free(fromMinute, minute);
+                        return false;
+                    }
+                    if (bits.compareAndSet(word, current, current | mask)) {
+                        break;
+                    }
+                }
+                minute = wordEnd;
+            }
+            return true;
+        }
+        
+        // Marks a range as booked whether or not it already is
+        void set(int fromMinute, int toMinute) {
+            for (int minute = fromMinute; minute < toMinute; ) {
+                int word = minute >>> 6;
+                int wordEnd = Math.min((word + 1) << 6, toMinute);
+                long mask = mask(minute, wordEnd);
+                while (true) {
+                    long current = bits.get(word);
+                    if (bits.compareAndSet(word, current, current | mask)) {
+                        break;
+                    }
+                }
+                minute = wordEnd;
+            }
+        }
+        
+        void free(int fromMinute, int toMinute) {
+            for (int minute = fromMinute; minute < toMinute; ) {
+                int word = minute >>> 6;
+                int wordEnd = Math.min((word + 1) << 6, toMinute);
+                long mask = mask(minute, wordEnd);
+                while (true) {
+                    long current = bits.get(word);
+                    if ((current & mask) == 0 || bits.compareAndSet(word, current, current & ~mask)) {
+                        break;
+                    }
+                }
+                minute = wordEnd;
+            }
+        }
+        
+        boolean isSet(int minute) {
+            return (bits.get(minute >>> 6) & (1L << (minute & 63))) != 0;
+        }
+        
+        boolean isRangeClear(int fromMinute, int toMinute) {
+            for (int minute = fromMinute; minute < toMinute; ) {
+                int word = minute >>> 6;
+                int wordEnd = Math.min((word + 1) << 6, toMinute);
+                if ((bits.get(word) & mask(minute, wordEnd)) != 0) {
+                    return false;
+                }
+                minute = wordEnd;
+            }
+            return true;
+        }
+    }
+}
@@ -1,17 +1,30 @@
 package com.smartclinic.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Service
-public class TokenService {
+public class TokenService implements MeterBinder {
     
     @Value("${jwt.secret}")
     private String secret;
@@ -19,6 +32,57 @@ public class TokenService {
     @Value("${jwt.expiration}")
     private Long expiration;
     
+    @Value("${jwt.cache.max-size:100000}")
+    private long cacheMaxSize;
+    
+    private SecretKey signingKey;
+    
+    private JwtParser parser;
+    
+    // Verified tokens keyed by SHA-256 digest; each entry expires at the token's exp claim
+    private Cache<String, VerifiedToken> verifiedTokens;
+    
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAt - System.currentTimeMillis()));
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, token, currentTime);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, verifiedTokens, "verifiedTokens");
+    }
+    
     /**
      * Generates a JWT token using the user's email
      * @param email User's email
@@ -32,7 +96,7 @@ public class TokenService {
                 .setSubject(email)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
     
@@ -42,44 +106,67 @@ public class TokenService {
      * @return Email from token if valid, null otherwise
      */
     public String validateToken(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            
-            return claims.getSubject();
-        } catch (Exception e) {
-            return null;
-        }
+        VerifiedToken verified = verify(token);
+        return verified != null ? verified.subject : null;
     }
     
     /**
-     * Returns the signing key using the configured secret
-     * @return SecretKey for JWT signing
+     * Checks if a token is expired
+     * @param token JWT token
+     * @return true if expired, false otherwise
      */
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    public boolean isTokenExpired(String token) {
+        return verify(token) == null;
     }
     
     /**
-     * Checks if a token is expired
+     * Returns the verified token from the cache, or verifies and caches it on a miss
      * @param token JWT token
-     * @return true if expired, false otherwise
+     * @return Verified token, or null if the token is invalid or expired
      */
-    public boolean isTokenExpired(String token) {
+    private VerifiedToken verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        
+        String key = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached;
+        }
+        
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            
-            return claims.getExpiration().before(new Date());
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiresAt = claims.getExpiration();
+            if (expiresAt == null) {
+                // Only tokens with an exp claim are cached, so every entry has a bounded lifetime
+                return new VerifiedToken(claims.getSubject(), Long.MAX_VALUE);
+            }
+            VerifiedToken verified = new VerifiedToken(claims.getSubject(), expiresAt.getTime());
+            verifiedTokens.put(key, verified);
+            return verified;
         } catch (Exception e) {
-            return true;
+            return null;
+        }
+    }
+    
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+    
+    /**
+     * Subject and expiry of a token whose signature has been checked
+     */
+    private static final class VerifiedToken {
+        
+        private final String subject;
+        
+        private final long expiresAt;
+        
+        VerifiedToken(String subject, long expiresAt) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
         }
     }
 }
@@ -0,0 +1,199 @@
+package com.smartclinic.service;
+
+import com.smartclinic.dto.DoctorPatientCount;
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.event.AppointmentChangedEvent;
+import com.smartclinic.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Estimated unique patients per doctor, from one HyperLogLog sketch per doctor and day.
+ * The sketch of a month or year is the merge of its day sketches, so rankings cost one
+ * merge per doctor-day instead of a COUNT(DISTINCT) over every appointment of the period.
+ * Like the stored procedures it replaces, every appointment counts whatever its status.
+ * Sketches cannot forget a patient: a deleted appointment or the old day of a rescheduled
+ * one stays counted until the next {@link #rebuild()}. The sketches live in memory only and
+ * are built in the background after startup; estimates are not {@link #isReady() ready} before.
+ */
+@Service
+public class UniquePatientAnalytics {
+    
+    private static final Logger log = LoggerFactory.getLogger(UniquePatientAnalytics.class);
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${clinic.analytics.sketch-precision:12}")
+    private int precision;
+    
+    private volatile ConcurrentMap<Long, ConcurrentNavigableMap<LocalDate, HyperLogLog>> sketches = new ConcurrentHashMap<>();
+    
+    // Set while a rebuild reads the appointments; live changes go into it as well
+    private volatile ConcurrentMap<Long, ConcurrentNavigableMap<LocalDate, HyperLogLog>> rebuilding;
+    
+    private volatile boolean ready;
+    
+    // Reading every appointment takes a while on a large table, so startup does not wait for it
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Could not build unique-patient sketches", e);
+            }
+        }, "unique-patient-sketches");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Tells whether the sketches have been built from the appointments table since startup
+     * @return True once estimates cover every appointment
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Counts the patient of a committed new or moved appointment
+     * @param event Appointment change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (event.isDeleted() == false) {
+            record(event.getDoctorId(), event.getTime(), event.getPatientId());
+        }
+    }
+    
+    /**
+     * Counts appointments that were written in bulk, without change events
+     * @param appointments New appointments
+     */
+    public void recordImported(List<Appointment> appointments) {
+        for (Appointment appointment : appointments) {
+            record(appointment.getDoctor().getId(), appointment.getAppointmentTime(), appointment.getPatient().getId());
+        }
+    }
+    
+    /**
+     * Rebuilds every sketch from the appointments table with a single streamed query
+     */
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        ConcurrentMap<Long, ConcurrentNavigableMap<LocalDate, HyperLogLog>> fresh = new ConcurrentHashMap<>();
+        rebuilding = fresh;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            long rows = transaction.execute(status -> {
+                long count = 0;
+                try (Stream<Object[]> visits = appointmentRepository.streamPatientVisits()) {
+                    for (Object[] visit : (Iterable<Object[]>) visits::iterator) {
+                        add(fresh, (Long) visit[0], (LocalDateTime) visit[1], (Long) visit[2]);
+                        count++;
+                    }
+                }
+                return count;
+            });
+            // Sketches only grow, so a change recorded in both maps is counted once
+            sketches = fresh;
+            ready = true;
+            log.info("Built unique-patient sketches from {} appointments in {} ms", rows, System.currentTimeMillis() - started);
+        } finally {
+            rebuilding = null;
+        }
+    }
+    
+    /**
+     * Estimates a doctor's unique patients over a period
+     * @param doctorId Doctor ID
+     * @param from First day (inclusive)
+     * @param to Last day (exclusive)
+     * @return Estimated number of distinct patients
+     */
+    public long estimate(Long doctorId, LocalDate from, LocalDate to) {
+        ConcurrentNavigableMap<LocalDate, HyperLogLog> days = sketches.get(doctorId);
+        if (days == null) {
+            return 0;
+        }
+        HyperLogLog merged = new HyperLogLog(precision);
+        for (HyperLogLog day : days.subMap(from, to).values()) {
+            merged.merge(day);
+        }
+        return merged.estimate();
+    }
+    
+    /**
+     * Ranks doctors by estimated unique patients over a period
+     * @param from First day (inclusive)
+     * @param to Last day (exclusive)
+     * @param limit Number of doctors to return
+     * @return Doctors with the most unique patients, most first; doctors without appointments are left out
+     */
+    public List<DoctorPatientCount> topDoctors(LocalDate from, LocalDate to, int limit) {
+        Comparator<DoctorPatientCount> order = Comparator.comparingLong(DoctorPatientCount::getPatientCount)
+                .thenComparing(DoctorPatientCount::getDoctorId, Comparator.reverseOrder());
+        PriorityQueue<DoctorPatientCount> top = new PriorityQueue<>(limit + 1, order);
+        // One accumulator for every doctor; cleared rather than reallocated
+        HyperLogLog merged = new HyperLogLog(precision);
+        for (Map.Entry<Long, ConcurrentNavigableMap<LocalDate, HyperLogLog>> doctor : sketches.entrySet()) {
+            merged.clear();
+            boolean any = false;
+            for (HyperLogLog day : doctor.getValue().subMap(from, to).values()) {
+                merged.merge(day);
+                any = true;
+            }
+            if (any == false) {
+                continue;
+            }
+            top.add(new DoctorPatientCount(doctor.getKey(), merged.estimate()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<DoctorPatientCount> ranking = new ArrayList<>(top);
+        ranking.sort(order.reversed());
+        return ranking;
+    }
+    
+    private void record(Long doctorId, LocalDateTime time, Long patientId) {
+        add(sketches, doctorId, time, patientId);
+        ConcurrentMap<Long, ConcurrentNavigableMap<LocalDate, HyperLogLog>> target = rebuilding;
+        if (target != null) {
+            add(target, doctorId, time, patientId);
+        }
+    }
+    
+    private void add(ConcurrentMap<Long, ConcurrentNavigableMap<LocalDate, HyperLogLog>> target,
+                     Long doctorId, LocalDateTime time, Long patientId) {
+        target.computeIfAbsent(doctorId, id -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(time.toLocalDate(), d -> new HyperLogLog(precision))
+                .offer(patientId);
+    }
+}
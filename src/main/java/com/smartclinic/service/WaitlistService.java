@@ -0,0 +1,383 @@
+package com.smartclinic.service;
+
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.entity.WaitlistEntry;
+import com.smartclinic.event.AppointmentChangedEvent;
+import com.smartclinic.repository.WaitlistEntryRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waitlist that fills freed slots. Patients wait for a doctor over a window within one day;
+ * when a deletion, cancellation or reschedule frees a slot, the slot is reserved at once and
+ * booked for the longest-waiting patient whose window contains it.
+ * Waiters are kept in memory per doctor, in one priority-ordered set for every hour their
+ * window touches, so a freed slot only looks at the waiters of its own hour. The table is the
+ * record of who is waiting; the in-memory index is rebuilt from it at startup.
+ */
+@Service
+public class WaitlistService implements MeterBinder {
+    
+    private static final Logger log = LoggerFactory.getLogger(WaitlistService.class);
+    
+    private static final Comparator<Waiter> PRIORITY = Comparator.comparing((Waiter waiter) -> waiter.createdAt)
+            .thenComparingLong(waiter -> waiter.id);
+    
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+    
+    @Autowired
+    private AppointmentService appointmentService;
+    
+    @Autowired
+    private DoctorService doctorService;
+    
+    @Autowired
+    private PatientService patientService;
+    
+    @Autowired
+    private SlotReservationEngine slotReservationEngine;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    @Qualifier("waitlistExecutor")
+    private TaskExecutor waitlistExecutor;
+    
+    @Value("${clinic.waitlist.max-entries-per-patient:5}")
+    private long maxEntriesPerPatient;
+    
+    @Value("${clinic.waitlist.purge-interval:10m}")
+    private Duration purgeInterval;
+    
+    // Doctor ID -> start of hour -> waiters whose window overlaps that hour
+    private final ConcurrentMap<Long, ConcurrentNavigableMap<LocalDateTime, ConcurrentSkipListSet<Waiter>>> hours = new ConcurrentHashMap<>();
+    
+    private final ConcurrentMap<Long, Waiter> waiters = new ConcurrentHashMap<>();
+    
+    private final AtomicLong slotsFilled = new AtomicLong();
+    
+    private volatile ScheduledExecutorService purgeScheduler;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<WaitlistEntry> entries = waitlistEntryRepository.findByStatusAndWindowEndAfter(WaitlistEntry.WAITING, LocalDateTime.now());
+        for (WaitlistEntry entry : entries) {
+            index(new Waiter(entry));
+        }
+        log.info("Loaded {} waitlist entries", entries.size());
+        
+        purgeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waitlist-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purgeScheduler.scheduleWithFixedDelay(this::purge, purgeInterval.toMillis(), purgeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    void stopPurge() {
+        ScheduledExecutorService current = purgeScheduler;
+        if (current != null) {
+            current.shutdownNow();
+            purgeScheduler = null;
+        }
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("clinic.waitlist.waiting", waiters, ConcurrentMap::size)
+                .description("Patients on the waitlist")
+                .register(registry);
+        FunctionCounter.builder("clinic.waitlist.filled", slotsFilled, AtomicLong::get)
+                .description("Freed slots booked for waiting patients since startup")
+                .register(registry);
+    }
+    
+    /**
+     * Puts a patient on a doctor's waitlist for part of a day, or for the whole day. The window
+     * is narrowed to the doctor's working hours
+     * @param patientId Patient ID
+     * @param doctor Doctor
+     * @param date Day
+     * @param from Start of the window, or null for the start of the working day
+     * @param to End of the window (exclusive), or null for the end of the working day
+     * @return Saved entry
+     * @throws IllegalArgumentException if the window is empty or over, or the patient waits too often already
+     */
+    public WaitlistEntry join(Long patientId, Doctor doctor, LocalDate date, LocalTime from, LocalTime to) {
+        LocalTime start = from == null || from.isBefore(doctor.getAvailableStartTime()) ? doctor.getAvailableStartTime() : from;
+        LocalTime end = to == null || to.isAfter(doctor.getAvailableEndTime()) ? doctor.getAvailableEndTime() : to;
+        LocalDateTime windowEnd = date.atTime(end);
+        if (start.isBefore(end) == false || windowEnd.isAfter(LocalDateTime.now()) == false) {
+            throw new IllegalArgumentException("The doctor has no working hours left in that window");
+        }
+        if (waitlistEntryRepository.countByPatientIdAndStatus(patientId, WaitlistEntry.WAITING) >= maxEntriesPerPatient) {
+            throw new IllegalArgumentException("You are already on " + maxEntriesPerPatient + " waitlists");
+        }
+        
+        WaitlistEntry saved = waitlistEntryRepository.save(new WaitlistEntry(doctor.getId(), patientId, date.atTime(start), windowEnd));
+        index(new Waiter(saved));
+        return saved;
+    }
+    
+    /**
+     * Takes a patient off a waitlist
+     * @param patientId Patient ID
+     * @param entryId Waitlist entry ID
+     * @return true if the patient was waiting and no longer is; false if the entry is not
+     *         theirs, no longer waiting, or a slot is being booked for it right now
+     */
+    public boolean leave(Long patientId, Long entryId) {
+        Waiter waiter = waiters.get(entryId);
+        if (waiter == null || waiter.patientId != patientId || waiter.claimed.compareAndSet(false, true) == false) {
+            return false;
+        }
+        unindex(waiter);
+        updateStatus(entryId, WaitlistEntry.LEFT);
+        return true;
+    }
+    
+    /**
+     * Gets a patient's waitlist entries, newest first
+     * @param patientId Patient ID
+     * @return Entries in every status
+     */
+    public List<WaitlistEntry> getEntriesForPatient(Long patientId) {
+        return waitlistEntryRepository.findByPatientIdOrderByCreatedAtDesc(patientId);
+    }
+    
+    /**
+     * Offers slots freed by a committed change to the waitlist, off the thread that made the change
+     * @param event Appointment change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        LocalDateTime freed = freedTime(event);
+        if (freed == null || freed.isAfter(LocalDateTime.now()) == false || hasWaiters(event.getDoctorId(), freed) == false) {
+            return;
+        }
+        try {
+            waitlistExecutor.execute(() -> fill(event.getDoctorId(), freed, event.getPatientId()));
+        } catch (TaskRejectedException e) {
+            // The slot stays free for anyone to book
+            log.warn("Waitlist queue is full; slot of doctor {} at {} not offered", event.getDoctorId(), freed);
+        }
+    }
+    
+    /**
+     * Books a freed slot for the first eligible waiter. The slot is reserved before a waiter
+     * is chosen, so no regular booking can take it while the waiter's appointment is written
+     * @param doctorId Doctor ID
+     * @param time Slot time
+     * @param previousPatientId Patient who gave the slot up; never offered it back
+     */
+    void fill(Long doctorId, LocalDateTime time, Long previousPatientId) {
+        ConcurrentSkipListSet<Waiter> candidates = bucket(doctorId, time);
+        if (candidates == null || candidates.isEmpty() || slotReservationEngine.reserve(doctorId, time) == false) {
+            return;
+        }
+        Waiter chosen = null;
+        for (Waiter waiter : candidates) {
+            // Waiters whose window only partly overlaps the hour are skipped, not removed
+            if (waiter.covers(time) && Objects.equals(waiter.patientId, previousPatientId) == false && waiter.claimed.compareAndSet(false, true)) {
+                chosen = waiter;
+                break;
+            }
+        }
+        if (chosen == null) {
+            slotReservationEngine.release(doctorId, time);
+            return;
+        }
+        
+        try {
+            Long appointmentId = book(chosen, time);
+            unindex(chosen);
+            slotsFilled.incrementAndGet();
+            log.info("Booked freed slot of doctor {} at {} for waiting patient {} (appointment {})",
+                    doctorId, time, chosen.patientId, appointmentId);
+        } catch (RuntimeException e) {
+            slotReservationEngine.release(doctorId, time);
+            chosen.claimed.set(false);
+            log.error("Failed to book freed slot of doctor {} at {} for waiting patient {}", doctorId, time, chosen.patientId, e);
+        }
+    }
+    
+    private Long book(Waiter waiter, LocalDateTime time) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Optional<Doctor> doctorOpt = doctorService.findById(waiter.doctorId);
+            if (doctorOpt.isPresent() == false) {
+                throw new IllegalStateException("Doctor " + waiter.doctorId + " no longer exists");
+            }
+            Appointment appointment = new Appointment(time, doctorOpt.get(), patientService.getReference(waiter.patientId));
+            appointment.setStatus("SCHEDULED");
+            appointment.setNotes("Booked from the waitlist");
+            Appointment saved = appointmentService.bookAppointment(appointment);
+            
+            WaitlistEntry entry = waitlistEntryRepository.findById(waiter.id)
+                    .orElseThrow(() -> new IllegalStateException("Waitlist entry " + waiter.id + " no longer exists"));
+            entry.setStatus(WaitlistEntry.BOOKED);
+            entry.setAppointmentId(saved.getId());
+            waitlistEntryRepository.save(entry);
+            return saved.getId();
+        });
+    }
+    
+    // Time of the slot a change gave up, or null if it gave up none
+    private static LocalDateTime freedTime(AppointmentChangedEvent event) {
+        // A new booking frees nothing, and a cancelled appointment holds no slot to free
+        if (event.isCreated() || "CANCELLED".equals(event.getPreviousStatus())) {
+            return null;
+        }
+        if (event.isDeleted()) {
+            return event.getPreviousTime();
+        }
+        if ("CANCELLED".equals(event.getStatus())) {
+            return event.getTime();
+        }
+        return event.getTime().equals(event.getPreviousTime()) ? null : event.getPreviousTime();
+    }
+    
+    private boolean hasWaiters(Long doctorId, LocalDateTime time) {
+        ConcurrentSkipListSet<Waiter> candidates = bucket(doctorId, time);
+        return candidates != null && candidates.isEmpty() == false;
+    }
+    
+    private ConcurrentSkipListSet<Waiter> bucket(Long doctorId, LocalDateTime time) {
+        ConcurrentNavigableMap<LocalDateTime, ConcurrentSkipListSet<Waiter>> doctorHours = hours.get(doctorId);
+        return doctorHours == null ? null : doctorHours.get(time.truncatedTo(ChronoUnit.HOURS));
+    }
+    
+    private void index(Waiter waiter) {
+        waiters.put(waiter.id, waiter);
+        ConcurrentNavigableMap<LocalDateTime, ConcurrentSkipListSet<Waiter>> doctorHours =
+                hours.computeIfAbsent(waiter.doctorId, id -> new ConcurrentSkipListMap<>());
+        for (LocalDateTime hour = waiter.start.truncatedTo(ChronoUnit.HOURS); hour.isBefore(waiter.end); hour = hour.plusHours(1)) {
+            doctorHours.computeIfAbsent(hour, h -> new ConcurrentSkipListSet<>(PRIORITY)).add(waiter);
+        }
+    }
+    
+    // Emptied hours are left in place; purge drops them once they are past
+    private void unindex(Waiter waiter) {
+        waiters.remove(waiter.id);
+        ConcurrentNavigableMap<LocalDateTime, ConcurrentSkipListSet<Waiter>> doctorHours = hours.get(waiter.doctorId);
+        if (doctorHours == null) {
+            return;
+        }
+        for (LocalDateTime hour = waiter.start.truncatedTo(ChronoUnit.HOURS); hour.isBefore(waiter.end); hour = hour.plusHours(1)) {
+            ConcurrentSkipListSet<Waiter> bucket = doctorHours.get(hour);
+            if (bucket != null) {
+                bucket.remove(waiter);
+            }
+        }
+    }
+    
+    /**
+     * Drops the hours that are over and expires the entries whose window has ended;
+     * runs every purge interval
+     */
+    void purge() {
+        try {
+            purgeEnded();
+        } catch (RuntimeException e) {
+            // A failed run must not cancel the later ones
+            log.error("Waitlist purge failed", e);
+        }
+    }
+    
+    private void purgeEnded() {
+        LocalDateTime cutoff = LocalDateTime.now();
+        LocalDateTime currentHour = cutoff.truncatedTo(ChronoUnit.HOURS);
+        for (ConcurrentNavigableMap<LocalDateTime, ConcurrentSkipListSet<Waiter>> doctorHours : hours.values()) {
+            ConcurrentNavigableMap<LocalDateTime, ConcurrentSkipListSet<Waiter>> past = doctorHours.headMap(currentHour);
+            for (ConcurrentSkipListSet<Waiter> bucket : past.values()) {
+                for (Waiter waiter : bucket) {
+                    if (waiter.end.isAfter(cutoff) == false) {
+                        waiters.remove(waiter.id);
+                    }
+                }
+            }
+            past.clear();
+        }
+        int expired = new TransactionTemplate(transactionManager).execute(status -> waitlistEntryRepository.expireEnded(cutoff));
+        if (expired > 0) {
+            log.info("Expired {} waitlist entries", expired);
+        }
+    }
+    
+    private void updateStatus(Long entryId, String status) {
+        new TransactionTemplate(transactionManager).execute(transaction -> waitlistEntryRepository.updateWaitingStatus(entryId, status));
+    }
+    
+    /**
+     * In-memory copy of a waiting entry
+     */
+    private static final class Waiter {
+        
+        private final long id;
+        
+        private final long doctorId;
+        
+        private final long patientId;
+        
+        private final LocalDateTime start;
+        
+        private final LocalDateTime end;
+        
+        private final LocalDateTime createdAt;
+        
+        // Set by whoever takes the waiter off the list: a slot being booked, or the patient leaving
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        
+        Waiter(WaitlistEntry entry) {
+            this.id = entry.getId();
+            this.doctorId = entry.getDoctorId();
+            this.patientId = entry.getPatientId();
+            this.start = entry.getWindowStart();
+            this.end = entry.getWindowEnd();
+            this.createdAt = entry.getCreatedAt();
+        }
+        
+        boolean covers(LocalDateTime time) {
+            return time.isBefore(start) == false && time.isBefore(end);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+-- Smart Clinic Management System - Id Sequences
+
+-- Entities take their ids from pooled sequences so that Hibernate can batch
+-- inserts; IDENTITY columns force one INSERT round trip per row. MySQL has no
+-- sequences, so Hibernate emulates each one with a single-row table holding
+-- the next id to hand out, and reserves ids from it in blocks
+-- (allocationSize) that it fills in memory.
+--
+-- Run this script with the application stopped:
+--   * once when upgrading a database whose rows got AUTO_INCREMENT ids
+--   * after inserting rows with explicit ids (e.g. sample-data.sql)
+-- so that generated ids continue after the existing rows.
+
+USE smart_clinic_db;
+
+CREATE TABLE IF NOT EXISTS doctor_seq (next_val BIGINT) ENGINE=InnoDB;
+DELETE FROM doctor_seq;
+INSERT INTO doctor_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM doctors;
+
+CREATE TABLE IF NOT EXISTS patient_seq (next_val BIGINT) ENGINE=InnoDB;
+DELETE FROM patient_seq;
+INSERT INTO patient_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM patients;
+
+CREATE TABLE IF NOT EXISTS appointment_seq (next_val BIGINT) ENGINE=InnoDB;
+DELETE FROM appointment_seq;
+INSERT INTO appointment_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM appointments;
+
+CREATE TABLE IF NOT EXISTS prescription_seq (next_val BIGINT) ENGINE=InnoDB;
+DELETE FROM prescription_seq;
+INSERT INTO prescription_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM prescriptions;
+
+CREATE TABLE IF NOT EXISTS waitlist_seq (next_val BIGINT) ENGINE=InnoDB;
+DELETE FROM waitlist_seq;
+INSERT INTO waitlist_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM waitlist_entries;
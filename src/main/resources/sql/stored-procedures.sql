@@ -1,5 +1,16 @@
 -- Smart Clinic Management System - Stored Procedures
 
+-- Date filters are written as half-open ranges on the raw timestamp column
+-- (col >= start AND col < end) rather than DATE()/MONTH()/YEAR() predicates,
+-- so MySQL can range-scan the composite (doctor_id, appointment_time) and
+-- (patient_id, appointment_time) indexes.
+
+-- The reports of procedures 1, 4 and 6 are also served by /api/admin/reports
+-- from the appointment_daily_rollups table, which the application keeps up to
+-- date on every appointment change instead of scanning appointments per call.
+-- Procedures 2 and 3 are served by /api/admin/reports/top-doctors from
+-- per-day unique-patient sketches held in memory; counts are estimates.
+
 -- Create database if not exists
 CREATE DATABASE IF NOT EXISTS smart_clinic_db;
 USE smart_clinic_db;
@@ -16,16 +27,18 @@ BEGIN
         d.first_name,
         d.last_name,
         d.specialty,
-        DATE(a.appointment_time) as appointment_date,
+        report_date as appointment_date,
         COUNT(a.id) as total_appointments,
         COUNT(CASE WHEN a.status = 'SCHEDULED' THEN 1 END) as scheduled_appointments,
         COUNT(CASE WHEN a.status = 'CONFIRMED' THEN 1 END) as confirmed_appointments,
         COUNT(CASE WHEN a.status = 'CANCELLED' THEN 1 END) as cancelled_appointments,
         COUNT(CASE WHEN a.status = 'COMPLETED' THEN 1 END) as completed_appointments
     FROM doctors d
-    LEFT JOIN appointments a ON d.id = a.doctor_id AND DATE(a.appointment_time) = report_date
+    LEFT JOIN appointments a ON d.id = a.doctor_id
+        AND a.appointment_time >= report_date
+        AND a.appointment_time < report_date + INTERVAL 1 DAY
     WHERE d.id = doctor_id_param
-    GROUP BY d.id, d.first_name, d.last_name, d.specialty, DATE(a.appointment_time);
+    GROUP BY d.id, d.first_name, d.last_name, d.specialty;
 END //
 DELIMITER ;
 
@@ -36,19 +49,21 @@ CREATE PROCEDURE GetDoctorWithMostPatientsByMonth(
     IN target_year INT
 )
 BEGIN
+    DECLARE month_start DATETIME DEFAULT MAKEDATE(target_year, 1) + INTERVAL (target_month - 1) MONTH;
+
     SELECT 
         d.id as doctor_id,
         d.first_name,
         d.last_name,
         d.specialty,
         COUNT(DISTINCT a.patient_id) as patient_count,
-        MONTH(a.appointment_time) as month,
-        YEAR(a.appointment_time) as year
+        target_month as month,
+        target_year as year
     FROM doctors d
     INNER JOIN appointments a ON d.id = a.doctor_id
-    WHERE MONTH(a.appointment_time) = target_month 
-      AND YEAR(a.appointment_time) = target_year
-    GROUP BY d.id, d.first_name, d.last_name, d.specialty, MONTH(a.appointment_time), YEAR(a.appointment_time)
+    WHERE a.appointment_time >= month_start
+      AND a.appointment_time < month_start + INTERVAL 1 MONTH
+    GROUP BY d.id, d.first_name, d.last_name, d.specialty
     ORDER BY patient_count DESC
     LIMIT 1;
 END //
@@ -60,17 +75,20 @@ CREATE PROCEDURE GetDoctorWithMostPatientsByYear(
     IN target_year INT
 )
 BEGIN
+    DECLARE year_start DATETIME DEFAULT MAKEDATE(target_year, 1);
+
     SELECT 
         d.id as doctor_id,
         d.first_name,
         d.last_name,
         d.specialty,
         COUNT(DISTINCT a.patient_id) as patient_count,
-        YEAR(a.appointment_time) as year
+        target_year as year
     FROM doctors d
     INNER JOIN appointments a ON d.id = a.doctor_id
-    WHERE YEAR(a.appointment_time) = target_year
-    GROUP BY d.id, d.first_name, d.last_name, d.specialty, YEAR(a.appointment_time)
+    WHERE a.appointment_time >= year_start
+      AND a.appointment_time < year_start + INTERVAL 1 YEAR
+    GROUP BY d.id, d.first_name, d.last_name, d.specialty
     ORDER BY patient_count DESC
     LIMIT 1;
 END //
@@ -83,6 +101,8 @@ CREATE PROCEDURE GetMonthlyAppointmentStatistics(
     IN target_year INT
 )
 BEGIN
+    DECLARE month_start DATETIME DEFAULT MAKEDATE(target_year, 1) + INTERVAL (target_month - 1) MONTH;
+
     SELECT 
         DATE(a.appointment_time) as appointment_date,
         COUNT(a.id) as total_appointments,
@@ -91,8 +111,8 @@ BEGIN
         COUNT(CASE WHEN a.status = 'CANCELLED' THEN 1 END) as cancelled_count,
         COUNT(CASE WHEN a.status = 'COMPLETED' THEN 1 END) as completed_count
     FROM appointments a
-    WHERE MONTH(a.appointment_time) = target_month 
-      AND YEAR(a.appointment_time) = target_year
+    WHERE a.appointment_time >= month_start
+      AND a.appointment_time < month_start + INTERVAL 1 MONTH
     GROUP BY DATE(a.appointment_time)
     ORDER BY appointment_date;
 END //
@@ -117,7 +137,8 @@ BEGIN
     FROM appointments a
     INNER JOIN doctors d ON a.doctor_id = d.id
     WHERE a.patient_id = patient_id_param
-      AND DATE(a.appointment_time) BETWEEN start_date AND end_date
+      AND a.appointment_time >= start_date
+      AND a.appointment_time < end_date + INTERVAL 1 DAY
     ORDER BY a.appointment_time DESC;
 END //
 DELIMITER ;
@@ -142,7 +163,8 @@ BEGIN
         ROUND(COUNT(CASE WHEN a.status = 'COMPLETED' THEN 1 END) * 100.0 / COUNT(a.id), 2) as completion_rate
     FROM doctors d
     LEFT JOIN appointments a ON d.id = a.doctor_id 
-        AND DATE(a.appointment_time) BETWEEN start_date AND end_date
+        AND a.appointment_time >= start_date
+        AND a.appointment_time < end_date + INTERVAL 1 DAY
     WHERE d.id = doctor_id_param
     GROUP BY d.id, d.first_name, d.last_name, d.specialty;
 END //
@@ -162,7 +184,8 @@ BEGIN
         COUNT(DISTINCT p.doctor_id) as unique_doctors
     FROM prescriptions p
     INNER JOIN doctors d ON p.doctor_id = d.id
-    WHERE DATE(p.prescription_date) BETWEEN start_date AND end_date
+    WHERE p.prescription_date >= start_date
+      AND p.prescription_date < end_date + INTERVAL 1 DAY
     GROUP BY d.specialty
     ORDER BY total_prescriptions DESC;
 END //
@@ -184,7 +207,8 @@ BEGIN
         GROUP_CONCAT(DISTINCT TIME(a.appointment_time) ORDER BY TIME(a.appointment_time)) as booked_times
     FROM doctors d
     LEFT JOIN appointments a ON d.id = a.doctor_id 
-        AND DATE(a.appointment_time) = target_date
+        AND a.appointment_time >= target_date
+        AND a.appointment_time < target_date + INTERVAL 1 DAY
         AND a.status IN ('SCHEDULED', 'CONFIRMED')
     WHERE d.id = doctor_id_param
     GROUP BY d.id, d.first_name, d.last_name, d.available_start_time, d.available_end_time;
@@ -0,0 +1,163 @@
+package com.smartclinic.controller;
+
+import com.smartclinic.entity.Appointment;
+import com.smartclinic.entity.Doctor;
+import com.smartclinic.entity.Patient;
+import com.smartclinic.entity.Prescription;
+import com.smartclinic.metrics.StatementCounter;
+import com.smartclinic.repository.AppointmentRepository;
+import com.smartclinic.repository.DoctorRepository;
+import com.smartclinic.repository.PatientRepository;
+import com.smartclinic.repository.PrescriptionRepository;
+import com.smartclinic.service.TokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The appointment and prescription listings must issue a fixed number of SQL statements however
+ * many rows they return. Every seeded row has its own counterpart doctor or patient, so a lazy
+ * association loaded per row, while the list is built or serialized, shows up as a count that
+ * grows with the rows.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listings;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.show-sql=false",
+        "management.server.port=-1",
+        "jwt.secret=testSecretKey0123456789012345678901234567890123456789012345678901234567890123456789"
+})
+@AutoConfigureMockMvc
+class ListingStatementCountTest {
+    
+    // Caller lookup, the listing query and the subselect for the doctors' available times
+    private static final int MAX_STATEMENTS = 4;
+    
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private DoctorRepository doctorRepository;
+    
+    @Autowired
+    private PatientRepository patientRepository;
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+    
+    @Autowired
+    private TokenService tokenService;
+    
+    private Doctor doctor;
+    
+    private Patient patient;
+    
+    private String doctorToken;
+    
+    private String patientToken;
+    
+    @BeforeEach
+    void setUp() {
+        doctor = doctorRepository.save(newDoctor());
+        patient = patientRepository.save(newPatient());
+        doctorToken = tokenService.generateToken(doctor.getEmail());
+        patientToken = tokenService.generateToken(patient.getEmail());
+    }
+    
+    @Test
+    void doctorAppointmentsTakeConstantStatements() throws Exception {
+        assertConstantStatements("/api/appointments/doctor", doctorToken, "$.appointments.length()");
+    }
+    
+    @Test
+    void patientAppointmentsTakeConstantStatements() throws Exception {
+        assertConstantStatements("/api/appointments/patient", patientToken, "$.appointments.length()");
+    }
+    
+    @Test
+    void doctorPrescriptionsTakeConstantStatements() throws Exception {
+        assertConstantStatements("/api/prescriptions/doctor", doctorToken, "$.prescriptions.length()");
+    }
+    
+    @Test
+    void patientPrescriptionsTakeConstantStatements() throws Exception {
+        assertConstantStatements("/api/prescriptions/patient/" + patient.getId(), patientToken, "$.prescriptions.length()");
+    }
+    
+    private void assertConstantStatements(String uri, String token, String sizePath) throws Exception {
+        // The first request also resolves the caller, which is cached from then on
+        statementsFor(uri, token, sizePath, 0);
+        
+        // Both counts are taken with the new rows' doctors not yet in the second-level cache
+        seedRows(2);
+        int few = statementsFor(uri, token, sizePath, 2);
+        
+        seedRows(40);
+        int many = statementsFor(uri, token, sizePath, 42);
+        
+        assertEquals(few, many, uri + " issued more statements for 42 rows than for 2");
+        assertTrue(many <= MAX_STATEMENTS, uri + " issued " + many + " statements");
+    }
+    
+    private int statementsFor(String uri, String token, String sizePath, int rows) throws Exception {
+        MvcResult result = mockMvc.perform(get(uri).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(sizePath).value(rows))
+                .andReturn();
+        return ((AtomicInteger) result.getRequest().getAttribute(StatementCounter.REQUEST_ATTRIBUTE)).get();
+    }
+    
+    /**
+     * Gives the doctor and the patient each a number of appointments and prescriptions,
+     * every one of them with a doctor or patient of its own
+     */
+    private void seedRows(int count) {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            Doctor otherDoctor = doctorRepository.save(newDoctor());
+            Patient otherPatient = patientRepository.save(newPatient());
+            LocalDateTime time = start.plusMinutes(30L * SEQUENCE.incrementAndGet());
+            appointmentRepository.save(new Appointment(time, doctor, otherPatient));
+            appointmentRepository.save(new Appointment(time, otherDoctor, patient));
+            prescriptionRepository.save(new Prescription("Medication", "1 tablet", "Daily", doctor, otherPatient));
+            prescriptionRepository.save(new Prescription("Medication", "1 tablet", "Daily", otherDoctor, patient));
+        }
+    }
+    
+    private static Doctor newDoctor() {
+        int n = SEQUENCE.incrementAndGet();
+        return new Doctor("Doctor" + n, "Test", "doctor" + n + "@listing.test", "password", "Cardiology", "555-" + n,
+                LocalTime.of(9, 0), LocalTime.of(17, 0));
+    }
+    
+    private static Patient newPatient() {
+        int n = SEQUENCE.incrementAndGet();
+        return new Patient("Patient" + n, "Test", "patient" + n + "@listing.test", "password", "555-" + n,
+                LocalDate.of(1980, 1, 1), "Address " + n);
+    }
+}
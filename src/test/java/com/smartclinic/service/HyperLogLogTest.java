@@ -0,0 +1,106 @@
+package com.smartclinic.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Estimates against exact distinct counts, at the precision the application runs with.
+ * Precision 12 has a relative standard error of about 1.6%; single estimates are held to
+ * three standard errors and the mean over many doctors to well under two.
+ */
+class HyperLogLogTest {
+    
+    private static final int PRECISION = 12;
+    
+    private static final double MAX_ERROR = 0.05;
+    
+    private static final double MAX_MEAN_ERROR = 0.025;
+    
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog(PRECISION).estimate());
+    }
+    
+    @Test
+    void estimatesAreWithinBoundAcrossCardinalities() {
+        Random random = new Random(42);
+        for (int cardinality : new int[] {10, 100, 1000, 10000, 100000, 1000000}) {
+            HyperLogLog sketch = new HyperLogLog(PRECISION);
+            Set<Long> exact = new HashSet<>();
+            while (exact.size() < cardinality) {
+                long value = random.nextLong();
+                exact.add(value);
+                sketch.offer(value);
+                // Repeated values must not count twice
+                sketch.offer(value);
+            }
+            double error = relativeError(sketch.estimate(), cardinality);
+            assertTrue(error <= MAX_ERROR, cardinality + " distinct values estimated with error " + error);
+        }
+    }
+    
+    @Test
+    void mergedDaySketchesMatchExactCountsPerDoctor() {
+        // A year of 8 visits a day for each of 100 doctors, drawn from 20000 patients
+        Random random = new Random(7);
+        double totalError = 0;
+        double maxError = 0;
+        int doctors = 100;
+        for (int doctor = 0; doctor < doctors; doctor++) {
+            List<HyperLogLog> days = new ArrayList<>();
+            Set<Long> patients = new HashSet<>();
+            for (int day = 0; day < 365; day++) {
+                HyperLogLog sketch = new HyperLogLog(PRECISION);
+                for (int visit = 0; visit < 8; visit++) {
+                    long patientId = random.nextInt(20000) + 1;
+                    sketch.offer(patientId);
+                    patients.add(patientId);
+                }
+                days.add(sketch);
+            }
+            HyperLogLog year = new HyperLogLog(PRECISION);
+            for (HyperLogLog day : days) {
+                year.merge(day);
+            }
+            double error = relativeError(year.estimate(), patients.size());
+            totalError += error;
+            maxError = Math.max(maxError, error);
+        }
+        double meanError = totalError / doctors;
+        assertTrue(meanError <= MAX_MEAN_ERROR, "mean error " + meanError);
+        assertTrue(maxError <= MAX_ERROR, "max error " + maxError);
+    }
+    
+    @Test
+    void mergeCountsTheUnionOnce() {
+        HyperLogLog first = new HyperLogLog(PRECISION);
+        HyperLogLog second = new HyperLogLog(PRECISION);
+        for (long value = 0; value < 30000; value++) {
+            first.offer(value);
+        }
+        for (long value = 20000; value < 50000; value++) {
+            second.offer(value);
+        }
+        first.merge(second);
+        double error = relativeError(first.estimate(), 50000);
+        assertTrue(error <= MAX_ERROR, "union estimated with error " + error);
+    }
+    
+    @Test
+    void mergeRejectsOtherPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(PRECISION).merge(new HyperLogLog(PRECISION + 1)));
+    }
+    
+    private static double relativeError(long estimate, long exact) {
+        return Math.abs(estimate - exact) / (double) exact;
+    }
+}
@@ -0,0 +1,99 @@
+package com.smartclinic.service;
+
+import com.smartclinic.repository.AppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlotReservationEngineTest {
+    
+    private static final Long DOCTOR_ID = 1L;
+    
+    private final LocalDate day = LocalDate.now().plusDays(7);
+    
+    private SlotReservationEngine engine;
+    
+    @BeforeEach
+    void setUp() {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findBookedTimesForDoctor(anyLong(), any(), any())).thenReturn(Collections.emptyList());
+        engine = new SlotReservationEngine();
+        ReflectionTestUtils.setField(engine, "appointmentRepository", appointmentRepository);
+    }
+    
+    @Test
+    void bookingTakesTheWholeSlot() {
+        assertTrue(engine.reserve(DOCTOR_ID, day.atTime(9, 0)));
+        assertFalse(engine.reserve(DOCTOR_ID, day.atTime(9, 30)));
+        assertFalse(engine.reserve(DOCTOR_ID, day.atTime(8, 1)));
+        assertFalse(engine.isRangeFree(DOCTOR_ID, day, 9 * 60, 10 * 60));
+        assertTrue(engine.reserve(DOCTOR_ID, day.atTime(10, 0)));
+        assertTrue(engine.reserve(DOCTOR_ID, day.atTime(8, 0)));
+    }
+    
+    @Test
+    void slotAcrossWordBoundaryIsClaimedWhole() {
+        // Minute 1000 lies in word 15 (minutes 960-1023); its slot runs on into word 16
+        LocalDateTime time = day.atStartOfDay().plusMinutes(1000);
+        assertTrue(engine.reserve(DOCTOR_ID, time.plusMinutes(59)));
+        assertFalse(engine.reserve(DOCTOR_ID, time));
+        // The refused claim left the free minutes before the conflict free
+        assertTrue(engine.isRangeFree(DOCTOR_ID, day, 1000, 1059));
+    }
+    
+    @Test
+    void releaseFreesTheWholeSlot() {
+        LocalDateTime time = day.atTime(14, 0);
+        assertTrue(engine.reserve(DOCTOR_ID, time));
+        engine.release(DOCTOR_ID, time);
+        assertTrue(engine.isRangeFree(DOCTOR_ID, day, 14 * 60, 15 * 60));
+        assertTrue(engine.reserve(DOCTOR_ID, day.atTime(14, 30)));
+    }
+    
+    @Test
+    void slotMovesOntoAnOverlappingTime() {
+        LocalDateTime from = day.atTime(9, 0);
+        LocalDateTime to = day.atTime(9, 30);
+        assertTrue(engine.reserve(DOCTOR_ID, from));
+        assertTrue(engine.reserveExcept(DOCTOR_ID, to, from));
+        engine.releaseExcept(DOCTOR_ID, from, to);
+        assertTrue(engine.isRangeFree(DOCTOR_ID, day, 9 * 60, 9 * 60 + 30));
+        assertFalse(engine.isRangeFree(DOCTOR_ID, day, 9 * 60 + 30, 10 * 60 + 30));
+        assertFalse(engine.reserve(DOCTOR_ID, day.atTime(10, 0)));
+        assertTrue(engine.reserve(DOCTOR_ID, day.atTime(10, 30)));
+    }
+    
+    @Test
+    void pastTimesCannotBeReserved() {
+        assertFalse(engine.reserve(DOCTOR_ID, LocalDateTime.now().minusMinutes(1)));
+        assertFalse(engine.reserve(DOCTOR_ID, LocalDate.now().minusDays(3).atTime(9, 0)));
+    }
+    
+    @Test
+    void pastDayStaysInMemoryWhileUsed() {
+        LocalDate past = LocalDate.now().minusDays(3);
+        engine.markBooked(DOCTOR_ID, past.atTime(9, 0));
+        assertTrue(engine.isRangeFree(DOCTOR_ID, past, 9 * 60, 10 * 60));
+        // The day now in memory keeps the booking
+        engine.markBooked(DOCTOR_ID, past.atTime(9, 0));
+        assertFalse(engine.isRangeFree(DOCTOR_ID, past, 9 * 60, 10 * 60));
+    }
+    
+    @Test
+    void lastSlotOfTheDayStopsAtMidnight() {
+        assertTrue(engine.reserve(DOCTOR_ID, day.atTime(23, 30)));
+        assertFalse(engine.reserve(DOCTOR_ID, day.atTime(23, 59)));
+        assertTrue(engine.reserve(DOCTOR_ID, day.plusDays(1).atTime(0, 0)));
+    }
+}